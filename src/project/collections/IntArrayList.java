@@ -0,0 +1,118 @@
+package project.collections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+public class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] elements = EMPTY;
+    private int size;
+
+    public int getInt(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public void addInt(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size + (size >> 1)));
+        }
+        elements[size++] = value;
+        modCount++;
+    }
+
+    public int indexOfInt(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean removeInt(int value) {
+        int index = indexOfInt(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        checkIndex(index);
+        int oldValue = elements[index];
+        elements[index] = value;
+        return oldValue;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        addInt(value);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: %s, size: %s".formatted(index, size));
+        }
+        addInt(value);
+        System.arraycopy(elements, index, elements, index + 1, size - index - 1);
+        elements[index] = value;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        checkIndex(index);
+        return removeAt(index);
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer intValue && removeInt(intValue);
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        return value instanceof Integer intValue ? indexOfInt(intValue) : -1;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return indexOf(value) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int removeAt(int index) {
+        int oldValue = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+        return oldValue;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: %s, size: %s".formatted(index, size));
+        }
+    }
+}
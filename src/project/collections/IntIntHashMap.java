@@ -0,0 +1,112 @@
+package project.collections;
+
+import java.util.Arrays;
+
+// Maps int keys to non-negative int values; -1 marks an empty slot and an absent key.
+public class IntIntHashMap {
+    public static final int NO_VALUE = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int threshold;
+
+    public IntIntHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int key) {
+        return values[indexOf(key)];
+    }
+
+    public int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values are not supported: %s".formatted(value));
+        }
+        int index = indexOf(key);
+        int oldValue = values[index];
+        if (oldValue == NO_VALUE) {
+            if (size >= threshold) {
+                resize();
+                index = indexOf(key);
+            }
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+        return oldValue;
+    }
+
+    public int remove(int key) {
+        int index = indexOf(key);
+        int oldValue = values[index];
+        if (oldValue != NO_VALUE) {
+            deleteSlot(index);
+            size--;
+        }
+        return oldValue;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, NO_VALUE);
+            size = 0;
+        }
+    }
+
+    private int indexOf(int key) {
+        int mask = values.length - 1;
+        int index = hash(key) & mask;
+        while (values[index] != NO_VALUE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void deleteSlot(int index) {
+        int mask = values.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (values[next] != NO_VALUE) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = NO_VALUE;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NO_VALUE);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+}
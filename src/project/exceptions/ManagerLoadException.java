@@ -4,4 +4,8 @@ public class ManagerLoadException extends RuntimeException {
     public ManagerLoadException(String message) {
         super(message);
     }
+
+    public ManagerLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
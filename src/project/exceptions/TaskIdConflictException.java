@@ -0,0 +1,7 @@
+package project.exceptions;
+
+public class TaskIdConflictException extends RuntimeException {
+    public TaskIdConflictException(String message) {
+        super(message);
+    }
+}
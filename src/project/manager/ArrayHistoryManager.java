@@ -0,0 +1,129 @@
+package project.manager;
+
+import project.collections.IntIntHashMap;
+import project.taskType.Task;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NONE = -1;
+    private static final int INITIAL_SLOTS = 16;
+
+    private final IntIntHashMap slotsById = new IntIntHashMap();
+    private final int capacity;
+    private Task[] tasks = new Task[INITIAL_SLOTS];
+    private int[] prev = new int[INITIAL_SLOTS];
+    private int[] next = new int[INITIAL_SLOTS];
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeSlot = NONE;
+    private int usedSlots;
+    private int size;
+
+    public ArrayHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: %s".formatted(capacity));
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null || task.getId() == null) {
+            System.out.println("Ошибка: попытка добавить пустую задачу");
+            return;
+        }
+        int slot = slotsById.get(task.getId());
+        if (slot != IntIntHashMap.NO_VALUE) {
+            if (slot != tail) {
+                unlink(slot);
+                linkLast(slot);
+            }
+            tasks[slot] = task;
+            return;
+        }
+        if (size == capacity) {
+            slot = head;
+            unlink(slot);
+            slotsById.remove(tasks[slot].getId());
+            size--;
+        } else {
+            slot = allocateSlot();
+        }
+        tasks[slot] = task;
+        slotsById.put(task.getId(), slot);
+        linkLast(slot);
+        size++;
+    }
+
+    @Override
+    public void remove(Integer id) {
+        int slot = id != null ? slotsById.remove(id) : IntIntHashMap.NO_VALUE;
+        if (slot == IntIntHashMap.NO_VALUE) {
+            System.out.println("Ошибка: попытка удалить несуществующую задачу");
+            return;
+        }
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        Task[] history = new Task[size];
+        int index = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            history[index++] = tasks[slot];
+        }
+        return Collections.unmodifiableList(Arrays.asList(history));
+    }
+
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (usedSlots == tasks.length) {
+            int newLength = (int) Math.min((long) tasks.length * 2, Integer.MAX_VALUE - 8);
+            tasks = Arrays.copyOf(tasks, newLength);
+            prev = Arrays.copyOf(prev, newLength);
+            next = Arrays.copyOf(next, newLength);
+        }
+        return usedSlots++;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail != NONE) {
+            next[tail] = slot;
+        } else {
+            head = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int previous = prev[slot];
+        int following = next[slot];
+        if (previous != NONE) {
+            next[previous] = following;
+        } else {
+            head = following;
+        }
+        if (following != NONE) {
+            prev[following] = previous;
+        } else {
+            tail = previous;
+        }
+    }
+}
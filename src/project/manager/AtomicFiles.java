@@ -0,0 +1,45 @@
+package project.manager;
+
+import project.manager.FileBackedTaskManager.FsyncPolicy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Replaces a file by writing a temp file beside it and renaming it over the target, so a crash leaves either
+// the old content or the new one. Unless the policy is NEVER, the temp file and the directory are forced as well.
+final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    static void write(File temp, File target, byte[] content, FsyncPolicy fsyncPolicy) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(true);
+            }
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.getAbsoluteFile().getParentFile(), fsyncPolicy);
+    }
+
+    static void syncDirectory(File directory, FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy == FsyncPolicy.NEVER) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory for syncing; the rename itself is still atomic there.
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package project.manager;
+
+import project.exceptions.ManagerLoadException;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Layout: header (magic, version, string count, record count), a table of length-prefixed UTF-8 strings
+// and fixed-width records that refer to names and descriptions by their index in the table.
+class BinarySnapshotFormat {
+    private static final int MAGIC = 0x544B4231;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+    private static final int RECORD_SIZE = 2 * Byte.BYTES + 4 * Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final int NONE = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshotFormat() {
+    }
+
+    static boolean isBinarySnapshot(File file) {
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            byte[] magic = input.readNBytes(Integer.BYTES);
+            return magic.length == Integer.BYTES && ByteBuffer.wrap(magic).getInt() == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+    }
+
+    static byte[] encode(List<Task> tasks) {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int stringTableSize = 0;
+        for (Task task : tasks) {
+            for (String value : new String[]{task.getName(), task.getDescription()}) {
+                if (value != null && !stringIndexes.containsKey(value)) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    stringIndexes.put(value, strings.size());
+                    strings.add(bytes);
+                    stringTableSize += Integer.BYTES + bytes.length;
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + stringTableSize + tasks.size() * RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(strings.size()).putInt(tasks.size());
+        for (byte[] bytes : strings) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        for (Task task : tasks) {
+            buffer.put((byte) task.getType().ordinal());
+            buffer.put((byte) (task.getStatus() != null ? task.getStatus().ordinal() : NONE));
+            buffer.putInt(task.getId());
+            buffer.putInt(task.getType() == TaskType.SUBTASK ? ((Subtask) task).getEpicId() : NONE);
+            buffer.putInt(task.getName() != null ? stringIndexes.get(task.getName()) : NONE);
+            buffer.putInt(task.getDescription() != null ? stringIndexes.get(task.getDescription()) : NONE);
+            buffer.putLong(task.getStartTime() != null
+                    ? task.getStartTime().toEpochSecond(ZoneOffset.UTC) : NO_TIME);
+            buffer.putLong(task.getDuration() != null ? task.getDuration().getSeconds() : NO_TIME);
+            buffer.putInt(task.getDuration() != null ? task.getDuration().getNano() : 0);
+        }
+        return buffer.array();
+    }
+
+    static void decode(File file, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new ManagerLoadException("Неизвестный формат снимка");
+            }
+            String[] strings = new String[buffer.getInt()];
+            int recordCount = buffer.getInt();
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[Math.max(length, scratch.length * 2)];
+                }
+                buffer.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < recordCount; i++) {
+                consumer.accept(readRecord(buffer, strings));
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+    }
+
+    private static Task readRecord(ByteBuffer buffer, String[] strings) {
+        TaskType taskType = TASK_TYPES[buffer.get()];
+        byte statusIndex = buffer.get();
+        Status status = statusIndex != NONE ? STATUSES[statusIndex] : null;
+        int id = buffer.getInt();
+        int epicId = buffer.getInt();
+        int nameIndex = buffer.getInt();
+        int descriptionIndex = buffer.getInt();
+        long startSeconds = buffer.getLong();
+        long durationSeconds = buffer.getLong();
+        int durationNanos = buffer.getInt();
+
+        String name = nameIndex != NONE ? strings[nameIndex] : null;
+        String description = descriptionIndex != NONE ? strings[descriptionIndex] : null;
+        LocalDateTime startTime = startSeconds != NO_TIME
+                ? LocalDateTime.ofEpochSecond(startSeconds, 0, ZoneOffset.UTC) : null;
+        Duration duration = durationSeconds != NO_TIME ? Duration.ofSeconds(durationSeconds, durationNanos) : null;
+
+        Task task;
+        if (taskType == TaskType.TASK) {
+            task = new Task(name, description, status, startTime, duration);
+        } else if (taskType == TaskType.EPIC) {
+            task = new Epic(name, description, status, startTime, duration);
+        } else {
+            task = new Subtask(name, description, status, epicId, startTime, duration);
+        }
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,124 @@
+package project.manager;
+
+import project.taskType.Task;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Views are appended to striped lock-free ring buffers and replayed into the ordered delegate in batches.
+// Like Caffeine's read buffers this is lossy: when a stripe is full and the drain lock is busy the view is dropped.
+public class BufferedHistoryManager implements HistoryManager {
+    private static final int STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4);
+    private static final int BUFFER_SIZE = 64;
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2;
+
+    private final HistoryManager delegate;
+    private final ReadBuffer[] buffers = new ReadBuffer[STRIPES];
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    public BufferedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+        for (int i = 0; i < STRIPES; i++) {
+            buffers[i] = new ReadBuffer();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            System.out.println("Ошибка: попытка добавить пустую задачу");
+            return;
+        }
+        ReadBuffer buffer = buffers[stripeIndex()];
+        int pending = buffer.offer(task);
+        if (pending < 0) {
+            tryDrain();
+            buffer.offer(task);
+        } else if (pending >= DRAIN_THRESHOLD) {
+            tryDrain();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            return delegate.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer id) {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void tryDrain() {
+        if (drainLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drainBuffers() {
+        for (ReadBuffer buffer : buffers) {
+            buffer.drainTo(delegate);
+        }
+    }
+
+    private static int stripeIndex() {
+        long threadId = Thread.currentThread().threadId();
+        return (int) (threadId * 0x9E3779B97F4A7C15L >>> 32) & (STRIPES - 1);
+    }
+
+    private static class ReadBuffer {
+        private final AtomicReferenceArray<Task> elements = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        // Returns the number of pending views after the append, or -1 when the buffer is full.
+        int offer(Task task) {
+            while (true) {
+                long tail = writeCounter.get();
+                long pending = tail - readCounter;
+                if (pending >= BUFFER_SIZE) {
+                    return -1;
+                }
+                if (writeCounter.compareAndSet(tail, tail + 1)) {
+                    elements.lazySet((int) (tail & (BUFFER_SIZE - 1)), task);
+                    return (int) pending + 1;
+                }
+            }
+        }
+
+        // Called with the drain lock held.
+        void drainTo(HistoryManager historyManager) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & (BUFFER_SIZE - 1));
+                Task task = elements.get(index);
+                if (task == null) {
+                    break;
+                }
+                elements.lazySet(index, null);
+                historyManager.add(task);
+                head++;
+            }
+            readCounter = head;
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package project.manager;
+
+import project.exceptions.TaskTimeConflictException;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+// Lookups and list reads take no locks. Writers change an epic under its stripe lock and then publish a copy of it, which is
+// never changed afterwards. A schedule change drops the published prioritized list; only the first read after it
+// takes scheduleLock to rebuild the list, so a long run of writes does not copy it each time.
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+
+    private final HistoryManager historyManager;
+    private final AtomicInteger id = new AtomicInteger();
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> publishedEpics = new ConcurrentHashMap<>();
+    private final Map<Integer, SubtaskSnapshot> subtaskSnapshots = new ConcurrentHashMap<>();
+    private final TimeIntervalIndex prioritizedTasks = new TimeIntervalIndex();
+    private volatile List<Task> prioritizedSnapshot = List.of();
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    private final ReentrantLock[] epicLocks;
+
+    public ConcurrentTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this(historyManager, DEFAULT_LOCK_STRIPES);
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager, int lockStripes) {
+        if (lockStripes <= 0) {
+            throw new IllegalArgumentException("Lock stripes count must be positive: %s".formatted(lockStripes));
+        }
+        this.historyManager = historyManager instanceof BufferedHistoryManager
+                ? historyManager
+                : new BufferedHistoryManager(historyManager);
+        epicLocks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        scheduleLock.lock();
+        try {
+            tasks.keySet().forEach(id -> {
+                tasks.remove(id);
+                prioritizedTasks.remove(id);
+                historyManager.remove(id);
+            });
+            prioritizedSnapshot = null;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public Task getTaskById(Integer id) {
+        Task task = id != null ? tasks.get(id) : null;
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    @Override
+    public void addNewTask(Task task) {
+        if (task != null) {
+            if (task.getId() == null) {
+                task.setId(getGeneratedId());
+            } else {
+                reserveId(task.getId());
+            }
+            scheduleLock.lock();
+            try {
+                tasks.put(task.getId(), task);
+                prioritizedTasks.add(task);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+        } else {
+            System.out.println("Ошибка: попытка добавить пустую задачу");
+        }
+    }
+
+    @Override
+    public void updateTask(Task updatedTask) {
+        Objects.requireNonNull(updatedTask, "Task for update must not be null");
+        var taskId = updatedTask.getId();
+        scheduleLock.lock();
+        try {
+            if (taskId == null || !tasks.containsKey(taskId)) {
+                throw new IllegalArgumentException("No task by id %s".formatted(taskId));
+            }
+            if (prioritizedTasks.hasIntersections(updatedTask)) {
+                throw new TaskTimeConflictException("Task with id=%s has intersection".formatted(taskId));
+            }
+            tasks.put(taskId, updatedTask);
+            prioritizedTasks.remove(taskId);
+            prioritizedTasks.add(updatedTask);
+            prioritizedSnapshot = null;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(Integer id) {
+        scheduleLock.lock();
+        try {
+            if (id == null || tasks.remove(id) == null) {
+                throw new IllegalArgumentException("No task by id %s".formatted(id));
+            }
+            prioritizedTasks.remove(id);
+            prioritizedSnapshot = null;
+        } finally {
+            scheduleLock.unlock();
+        }
+        historyManager.remove(id);
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lockAllEpics();
+        try {
+            scheduleLock.lock();
+            try {
+                subtasks.keySet().forEach(prioritizedTasks::remove);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+            subtasks.keySet().forEach(historyManager::remove);
+            subtasks.clear();
+            subtaskSnapshots.clear();
+            epics.values().forEach(epic -> {
+                epic.deleteAllSubtasks();
+                epic.setStatus(epic.calculateStatus());
+                publishEpic(epic);
+            });
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public Subtask getSubtaskById(Integer id) {
+        Subtask subtask = id != null ? subtasks.get(id) : null;
+        if (subtask != null) {
+            historyManager.add(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public void addNewSubtask(Subtask subtask) {
+        if (subtask == null) {
+            System.out.println("Ошибка: попытка добавить пустую подзадачу");
+            return;
+        }
+        Integer epicId = subtask.getEpicId();
+        if (epicId == null) {
+            throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+        }
+        ReentrantLock epicLock = getEpicLock(epicId);
+        epicLock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+            }
+            if (subtask.getId() == null) {
+                subtask.setId(getGeneratedId());
+            } else {
+                reserveId(subtask.getId());
+            }
+            subtasks.put(subtask.getId(), subtask);
+            epic.addSubtask(subtask.getId());
+            trackSubtask(epic, subtask);
+            scheduleLock.lock();
+            try {
+                prioritizedTasks.add(subtask);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+            publishEpic(epic);
+        } finally {
+            epicLock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        Objects.requireNonNull(subtask, "Subtask for update must not be null");
+        var subtaskId = subtask.getId();
+        var epicId = subtask.getEpicId();
+        if (subtaskId == null || epicId == null) {
+            throw new IllegalArgumentException("No subtask by id %s".formatted(subtaskId));
+        }
+        ReentrantLock epicLock = getEpicLock(epicId);
+        epicLock.lock();
+        try {
+            var oldSubtask = subtasks.get(subtaskId);
+            if (oldSubtask == null) {
+                throw new IllegalArgumentException("No subtask by id %s".formatted(subtaskId));
+            }
+            var epic = epics.get(epicId);
+            if (epic == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+            }
+            if (!epicId.equals(oldSubtask.getEpicId())) {
+                throw new IllegalArgumentException("Subtask with id=%s is not related to epic with id=%s"
+                        .formatted(subtaskId, epicId));
+            }
+            scheduleLock.lock();
+            try {
+                if (prioritizedTasks.hasIntersections(subtask)) {
+                    throw new TaskTimeConflictException("Subtask with id=%s has intersection".formatted(subtaskId));
+                }
+                prioritizedTasks.remove(subtaskId);
+                prioritizedTasks.add(subtask);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+            subtasks.put(subtaskId, subtask);
+            trackSubtask(epic, subtask);
+            publishEpic(epic);
+        } finally {
+            epicLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(Integer id) {
+        Subtask subtask = id != null ? subtasks.get(id) : null;
+        if (subtask == null) {
+            throw new IllegalArgumentException("No subtask by id %s".formatted(id));
+        }
+        ReentrantLock epicLock = getEpicLock(subtask.getEpicId());
+        epicLock.lock();
+        try {
+            if (subtasks.remove(id) == null) {
+                throw new IllegalArgumentException("No subtask by id %s".formatted(id));
+            }
+            scheduleLock.lock();
+            try {
+                prioritizedTasks.remove(id);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.deleteSubtask(id);
+                untrackSubtask(epic, id);
+                publishEpic(epic);
+            }
+        } finally {
+            epicLock.unlock();
+        }
+        historyManager.remove(id);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksInEpic(Epic epic) {
+        Epic published = publishedEpics.get(epic.getId());
+        return getSubtasksInEpic((published != null ? published : epic).getSubtasks());
+    }
+
+    @Override
+    public void updateEpicStatus(Epic epic) {
+        ReentrantLock epicLock = getEpicLock(epic.getId());
+        epicLock.lock();
+        try {
+            epic.setStatus(epic.calculateStatus());
+            if (epics.get(epic.getId()) == epic) {
+                publishEpic(epic);
+            }
+        } finally {
+            epicLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(publishedEpics.values());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lockAllEpics();
+        try {
+            scheduleLock.lock();
+            try {
+                subtasks.keySet().forEach(prioritizedTasks::remove);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+            epics.keySet().forEach(historyManager::remove);
+            subtasks.keySet().forEach(historyManager::remove);
+            epics.clear();
+            publishedEpics.clear();
+            subtasks.clear();
+            subtaskSnapshots.clear();
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public void addNewEpic(Epic epic) {
+        if (epic != null) {
+            if (epic.getId() == null) {
+                epic.setId(getGeneratedId());
+            } else {
+                reserveId(epic.getId());
+            }
+            ReentrantLock epicLock = getEpicLock(epic.getId());
+            epicLock.lock();
+            try {
+                epics.put(epic.getId(), epic);
+                publishEpic(epic);
+            } finally {
+                epicLock.unlock();
+            }
+        } else {
+            System.out.println("Ошибка: попытка добавить пустой эпик");
+        }
+    }
+
+    @Override
+    public Epic getEpicById(Integer id) {
+        Epic epic = id != null ? publishedEpics.get(id) : null;
+        if (epic != null) {
+            historyManager.add(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public void updateEpic(Epic updatedEpic) {
+        if (updatedEpic == null) {
+            System.out.println("Ошибка: попытка обновить эпик пустым значением");
+            return;
+        }
+        Integer epicId = updatedEpic.getId();
+        if (epicId == null) {
+            throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+        }
+        ReentrantLock epicLock = getEpicLock(epicId);
+        epicLock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+            }
+            epic.setName(updatedEpic.getName());
+            epic.setDescription(updatedEpic.getDescription());
+            publishEpic(epic);
+        } finally {
+            epicLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpicById(Integer id) {
+        if (id == null) {
+            throw new IllegalArgumentException("No epic by id %s".formatted(id));
+        }
+        List<Integer> subtasksById;
+        ReentrantLock epicLock = getEpicLock(id);
+        epicLock.lock();
+        try {
+            Epic epic = epics.remove(id);
+            if (epic == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(id));
+            }
+            publishedEpics.remove(id);
+            subtasksById = new ArrayList<>(epic.getSubtasks());
+            subtasksById.forEach(subtaskId -> {
+                subtasks.remove(subtaskId);
+                subtaskSnapshots.remove(subtaskId);
+            });
+            scheduleLock.lock();
+            try {
+                subtasksById.forEach(prioritizedTasks::remove);
+                prioritizedSnapshot = null;
+            } finally {
+                scheduleLock.unlock();
+            }
+        } finally {
+            epicLock.unlock();
+        }
+        subtasksById.forEach(historyManager::remove);
+        historyManager.remove(id);
+    }
+
+    // Published epics are never changed, so the ids cannot change underneath while they are looked up.
+    @Override
+    public List<Subtask> getSubtasksInEpic(List<Integer> subtasksById) {
+        return subtasksById.stream().map(subtasks::get).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> snapshot = prioritizedSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        scheduleLock.lock();
+        try {
+            snapshot = prioritizedTasks.getTasks();
+            prioritizedSnapshot = snapshot;
+            return snapshot;
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Records go in one at a time through the regular add paths, so other threads keep working during a long load.
+    // The others follow the epics in id order, which settles conflicts like TimeIntervalIndex.addAll.
+    @Override
+    public List<Task> bulkLoad(Collection<? extends Task> records) {
+        List<Task> others = new ArrayList<>();
+        for (Task record : records) {
+            if (record instanceof Epic epic) {
+                addNewEpic(epic);
+            } else {
+                others.add(record);
+            }
+        }
+        others.sort(Comparator.comparing(Task::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<Task> conflicts = new ArrayList<>();
+        for (Task record : others) {
+            if (record instanceof Subtask subtask) {
+                addNewSubtask(subtask);
+            } else {
+                addNewTask(record);
+            }
+            if (record.getStartTime() != null && record.getDuration() != null) {
+                scheduleLock.lock();
+                try {
+                    if (!prioritizedTasks.contains(record.getId())) {
+                        conflicts.add(record);
+                    }
+                } finally {
+                    scheduleLock.unlock();
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    private Integer getGeneratedId() {
+        return id.incrementAndGet();
+    }
+
+    private void reserveId(int usedId) {
+        id.accumulateAndGet(usedId, Math::max);
+    }
+
+    private ReentrantLock getEpicLock(Integer epicId) {
+        return epicLocks[Math.floorMod(Objects.hashCode(epicId), epicLocks.length)];
+    }
+
+    // Called with the epic's lock held, once the change to it is complete.
+    private void publishEpic(Epic epic) {
+        publishedEpics.put(epic.getId(), new Epic(epic));
+    }
+
+
+    private void lockAllEpics() {
+        for (ReentrantLock epicLock : epicLocks) {
+            epicLock.lock();
+        }
+    }
+
+    private void unlockAllEpics() {
+        for (int i = epicLocks.length - 1; i >= 0; i--) {
+            epicLocks[i].unlock();
+        }
+    }
+
+    // Called with the epic's lock held.
+    private void trackSubtask(Epic epic, Subtask subtask) {
+        SubtaskSnapshot snapshot = new SubtaskSnapshot(subtask.getStatus(), subtask.getStartTime(),
+                subtask.getDuration());
+        SubtaskSnapshot oldSnapshot = subtaskSnapshots.put(subtask.getId(), snapshot);
+        if (oldSnapshot != null) {
+            epic.removeSubtaskStatus(oldSnapshot.status());
+            epic.removeSubtaskTime(oldSnapshot.startTime(), oldSnapshot.duration());
+        }
+        epic.addSubtaskStatus(snapshot.status());
+        epic.addSubtaskTime(snapshot.startTime(), snapshot.duration());
+        epic.setStatus(epic.calculateStatus());
+    }
+
+    private void untrackSubtask(Epic epic, Integer subtaskId) {
+        SubtaskSnapshot snapshot = subtaskSnapshots.remove(subtaskId);
+        if (snapshot != null) {
+            epic.removeSubtaskStatus(snapshot.status());
+            epic.removeSubtaskTime(snapshot.startTime(), snapshot.duration());
+        }
+        epic.setStatus(epic.calculateStatus());
+    }
+
+    private record SubtaskSnapshot(Status status, LocalDateTime startTime, Duration duration) {
+    }
+}
@@ -0,0 +1,365 @@
+package project.manager;
+
+import project.exceptions.ManagerLoadException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+// Reads RFC 4180 style records straight from UTF-8 bytes. Fields are kept as offsets into the buffer
+// and only turned into objects on request; the offsets are valid until the next call to next().
+class CsvReader {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_FIELDS = 16;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private long bufferOffset;
+    private int recordStart;
+    private int recordContentEnd;
+    private int recordEnd;
+
+    private int[] fieldStarts = new int[INITIAL_FIELDS];
+    private int[] fieldEnds = new int[INITIAL_FIELDS];
+    private boolean[] fieldQuoted = new boolean[INITIAL_FIELDS];
+    private boolean[] fieldEscaped = new boolean[INITIAL_FIELDS];
+    private int fieldCount;
+    private byte[] scratch = new byte[256];
+
+    CsvReader(InputStream in) {
+        this.in = in;
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+    }
+
+    CsvReader(byte[] data, int offset, int length) {
+        this.in = null;
+        this.buffer = data;
+        this.position = offset;
+        this.limit = offset + length;
+        this.endOfInput = true;
+        this.bufferOffset = -offset;
+    }
+
+    boolean next() throws IOException {
+        while (true) {
+            int recordEnd = parseRecord(position);
+            if (recordEnd < 0) {
+                if (endOfInput) {
+                    return false;
+                }
+                fill();
+                continue;
+            }
+            boolean blankLine = fieldCount == 1 && !fieldQuoted[0] && fieldStarts[0] == fieldEnds[0];
+            this.recordStart = position;
+            this.recordEnd = recordEnd;
+            position = recordEnd;
+            if (!blankLine) {
+                return true;
+            }
+        }
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    // Offsets of the current record in the input, line break included.
+    long recordOffset() {
+        return bufferOffset + recordStart;
+    }
+
+    long recordEndOffset() {
+        return bufferOffset + recordEnd;
+    }
+
+    // False when the input ended in the middle of the last record.
+    boolean recordTerminated() {
+        return recordEnd > recordContentEnd;
+    }
+
+    // Feeds the raw bytes of the record from the given field up to the line break.
+    void updateChecksum(Checksum checksum, int fromField) {
+        int start = fieldQuoted[fromField] ? fieldStarts[fromField] - 1 : fieldStarts[fromField];
+        checksum.update(buffer, start, recordContentEnd - start);
+    }
+
+    // Raw extent of a field in the input, quotes included; a slice read back from there parses as one field.
+    long fieldOffset(int field) {
+        return bufferOffset + (fieldQuoted[field] ? fieldStarts[field] - 1 : fieldStarts[field]);
+    }
+
+    int fieldLength(int field) {
+        return fieldQuoted[field] ? fieldEnds[field] - fieldStarts[field] + 2 : fieldEnds[field] - fieldStarts[field];
+    }
+
+    boolean isNull(int field) {
+        return !fieldQuoted[field] && fieldStarts[field] == fieldEnds[field];
+    }
+
+    String string(int field) {
+        if (isNull(field)) {
+            return null;
+        }
+        int start = fieldStarts[field];
+        int length = fieldEnds[field] - start;
+        if (!fieldEscaped[field]) {
+            return new String(buffer, start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        int size = 0;
+        for (int i = start; i < start + length; i++) {
+            scratch[size++] = buffer[i];
+            if (buffer[i] == '"') {
+                i++;
+            }
+        }
+        return new String(scratch, 0, size, StandardCharsets.UTF_8);
+    }
+
+    int intValue(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = start < end && buffer[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException("Empty number in field " + field);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Not a number: " + string(field));
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number out of range: " + string(field));
+        }
+        return (int) value;
+    }
+
+    int hexValue(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (end == start || end - start > 8) {
+            throw new NumberFormatException("Not a hex number: " + string(field));
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit < 0) {
+                throw new NumberFormatException("Not a hex number: " + string(field));
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    <E extends Enum<E>> E enumValue(int field, E[] values) {
+        for (E value : values) {
+            if (equalsAscii(field, value.name())) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown value: " + string(field));
+    }
+
+    // yyyy-MM-ddTHH:mm:ss is parsed in place; other ISO forms and the legacy "null" go through the slow path.
+    LocalDateTime dateTime(int field) {
+        if (isNull(field) || equalsAscii(field, "null")) {
+            return null;
+        }
+        int s = fieldStarts[field];
+        if (fieldEnds[field] - s == 19 && buffer[s + 4] == '-' && buffer[s + 7] == '-' && buffer[s + 10] == 'T'
+                && buffer[s + 13] == ':' && buffer[s + 16] == ':') {
+            return LocalDateTime.of(digits(s, 4), digits(s + 5, 2), digits(s + 8, 2),
+                    digits(s + 11, 2), digits(s + 14, 2), digits(s + 17, 2));
+        }
+        return LocalDateTime.parse(string(field));
+    }
+
+    // Parses the PT#H#M#.#S form produced by Duration.toString for non-negative durations.
+    Duration duration(int field) {
+        if (isNull(field) || equalsAscii(field, "null")) {
+            return null;
+        }
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (end - i < 3 || buffer[i] != 'P' || buffer[i + 1] != 'T') {
+            return Duration.parse(string(field));
+        }
+        i += 2;
+        long seconds = 0;
+        int nanos = 0;
+        while (i < end) {
+            long value = 0;
+            int digitsStart = i;
+            while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                value = value * 10 + (buffer[i++] - '0');
+            }
+            if (i == digitsStart || i == end || i - digitsStart > 18) {
+                return Duration.parse(string(field));
+            }
+            byte unit = buffer[i++];
+            if (unit == 'H') {
+                seconds += value * 3600;
+            } else if (unit == 'M') {
+                seconds += value * 60;
+            } else if (unit == 'S') {
+                seconds += value;
+            } else if (unit == '.') {
+                seconds += value;
+                int scale = 100_000_000;
+                while (i < end && buffer[i] >= '0' && buffer[i] <= '9') {
+                    nanos += (buffer[i++] - '0') * scale;
+                    scale /= 10;
+                }
+                if (i != end - 1 || buffer[i] != 'S') {
+                    return Duration.parse(string(field));
+                }
+                i++;
+            } else {
+                return Duration.parse(string(field));
+            }
+        }
+        return Duration.ofSeconds(seconds, nanos);
+    }
+
+    private boolean equalsAscii(int field, String value) {
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new ManagerLoadException("Некорректная дата в записи");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Returns the offset just past the record starting at from, or -1 if more input is needed.
+    private int parseRecord(int from) {
+        if (from >= limit) {
+            return -1;
+        }
+        fieldCount = 0;
+        int i = from;
+        while (true) {
+            int start;
+            int end;
+            boolean quoted = i < limit && buffer[i] == '"';
+            boolean escaped = false;
+            if (quoted) {
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (endOfInput) {
+                            throw new ManagerLoadException("Незакрытые кавычки в записи CSV");
+                        }
+                        return -1;
+                    }
+                    if (buffer[i] == '"') {
+                        if (i + 1 >= limit && !endOfInput) {
+                            return -1;
+                        }
+                        if (i + 1 < limit && buffer[i + 1] == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        end = i++;
+                        break;
+                    }
+                    i++;
+                }
+            } else {
+                start = i;
+                while (i < limit && buffer[i] != ',' && buffer[i] != '\n' && buffer[i] != '\r') {
+                    i++;
+                }
+                end = i;
+            }
+            if (i >= limit && !endOfInput) {
+                return -1;
+            }
+            addField(start, end, quoted, escaped);
+            if (i >= limit) {
+                recordContentEnd = limit;
+                return limit;
+            }
+            byte separator = buffer[i++];
+            if (separator == ',') {
+                continue;
+            }
+            if (separator == '\n') {
+                recordContentEnd = i - 1;
+                return i;
+            }
+            if (separator == '\r') {
+                if (i >= limit && !endOfInput) {
+                    return -1;
+                }
+                recordContentEnd = i - 1;
+                return i < limit && buffer[i] == '\n' ? i + 1 : i;
+            }
+            throw new ManagerLoadException("Лишние символы после кавычек в записи CSV");
+        }
+    }
+
+    private void addField(int start, int end, boolean quoted, boolean escaped) {
+        if (fieldCount == fieldStarts.length) {
+            int newLength = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, newLength);
+            fieldEnds = Arrays.copyOf(fieldEnds, newLength);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, newLength);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, newLength);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package project.manager;
+
+import project.collections.IntIntHashMap;
+import project.exceptions.ManagerLoadException;
+import project.exceptions.ManagerSaveException;
+import project.taskType.DescriptionLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+// Reads task descriptions back from the CSV snapshot they were saved in, by the raw offset of the field.
+// Short descriptions cost less on the heap than their offsets, so only fields of MIN_LENGTH bytes or more are indexed.
+class DescriptionFile implements DescriptionLoader {
+    static final int MIN_LENGTH = 64;
+
+    private static final int DESCRIPTION_FIELD = 4;
+    private static final int CACHE_SIZE = 1024;
+
+    private final Map<Integer, String> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private File file;
+    private FileChannel channel;
+    private Index index = new Index();
+
+    @Override
+    public synchronized String load(Integer taskId) {
+        String description = cache.get(taskId);
+        if (description != null) {
+            return description;
+        }
+        int slot = taskId != null ? index.slots.get(taskId) : IntIntHashMap.NO_VALUE;
+        if (slot == IntIntHashMap.NO_VALUE) {
+            throw new ManagerLoadException("Описание задачи %s не найдено в файле".formatted(taskId));
+        }
+        byte[] field = new byte[index.lengths[slot]];
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            }
+            ByteBuffer target = ByteBuffer.wrap(field);
+            while (target.hasRemaining()) {
+                if (channel.read(target, index.offsets[slot] + target.position()) < 0) {
+                    throw new ManagerLoadException("Файл изменился во время чтения описания");
+                }
+            }
+            CsvReader reader = new CsvReader(field, 0, field.length);
+            reader.next();
+            description = reader.string(0);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время чтения описания");
+        }
+        cache.put(taskId, description);
+        return description;
+    }
+
+    // The old channel stays readable until the switch, so tasks can be read while the file is being replaced.
+    synchronized void install(File file, Index index) throws IOException {
+        FileChannel newChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        close();
+        this.file = file;
+        this.channel = newChannel;
+        this.index = index;
+    }
+
+    synchronized void evict(int taskId) {
+        cache.remove(taskId);
+    }
+
+    // Lazy tasks may still be read afterwards; the file is then reopened on demand.
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing was written through this channel.
+        } finally {
+            channel = null;
+        }
+    }
+
+    static Index index(byte[] csv) {
+        Index index = new Index();
+        CsvReader reader = new CsvReader(csv, 0, csv.length);
+        try {
+            while (reader.next()) {
+                if (!TaskCsvCodec.isHeader(reader)) {
+                    index.add(reader);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка во время сохранения");
+        }
+        return index;
+    }
+
+    static class Index {
+        private final IntIntHashMap slots = new IntIntHashMap();
+        private int[] ids = new int[16];
+        private long[] offsets = new long[16];
+        private int[] lengths = new int[16];
+        private int size;
+
+        // Returns false when the description of the current record is too short to be worth leaving on disk.
+        boolean add(CsvReader record) {
+            int length = record.fieldLength(DESCRIPTION_FIELD);
+            if (length < MIN_LENGTH) {
+                return false;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            int id = record.intValue(0);
+            ids[size] = id;
+            offsets[size] = record.fieldOffset(DESCRIPTION_FIELD);
+            lengths[size] = length;
+            slots.put(id, size++);
+            return true;
+        }
+
+        void forEachId(IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(ids[i]);
+            }
+        }
+    }
+}
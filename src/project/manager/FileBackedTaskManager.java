@@ -1,174 +1,1373 @@
 package project.manager;
 
+import project.collections.IntArrayList;
+import project.collections.IntObjectHashMap;
 import project.exceptions.ManagerLoadException;
 import project.exceptions.ManagerSaveException;
-import project.taskStatus.Status;
 import project.taskType.Epic;
 import project.taskType.Subtask;
 import project.taskType.Task;
 import project.taskType.TaskType;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    private static final int DEFAULT_FLUSH_THRESHOLD = 1_000;
+    private static final int DEFAULT_COMPACTION_RECORDS = 10_000;
+    private static final long DEFAULT_COMPACTION_BYTES = 16L * 1024 * 1024;
+    private static final long PARALLEL_LOAD_THRESHOLD = 16L * 1024 * 1024;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+    private static final int LOG_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LOG_WRITES_IN_FLIGHT = 16;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
     private final File file;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private final PersistenceMode persistenceMode;
+    private final SnapshotFormat snapshotFormat;
+    private final FsyncPolicy fsyncPolicy;
+    private final File logFile;
+    private final File snapshotTempFile;
+    private final File saveTempFile;
+    private final Duration flushInterval;
+    private final int flushThreshold;
+    private final int compactionRecords;
+    private final long compactionBytes;
+    private final DescriptionFile descriptionFile;
+    private final Object snapshotWriteLock = new Object();
+    private final StringBuilder recordBuilder = new StringBuilder();
+    private final CRC32C checksum = new CRC32C();
+    private final ByteArrayOutputStream pendingRecords = new ByteArrayOutputStream();
+    private int pendingRecordCount;
+    private final IntObjectHashMap<LogOperation> changedIds = new IntObjectHashMap<>();
+    private final IntObjectHashMap<TaskType> removedIds = new IntObjectHashMap<>();
+    private final EnumSet<TaskType> clearedTypes = EnumSet.noneOf(TaskType.class);
+    private FileChannel logChannel;
+    private AsynchronousFileChannel asyncLogChannel;
+    private long asyncLogPosition;
+    private CompletableFuture<Void> durableRecords = CompletableFuture.completedFuture(null);
+    private final Semaphore logWritesInFlight = new Semaphore(MAX_LOG_WRITES_IN_FLIGHT);
+    private boolean logPermitReserved;
+    // Set while the log is replayed through the regular mutators, which must not write the records again.
+    private boolean replaying;
+    private final ArrayDeque<ByteBuffer> logBuffers = new ArrayDeque<>();
+    private final Object logSyncLock = new Object();
+    private List<CompletableFuture<Void>> writesAwaitingSync = new ArrayList<>();
+    private boolean syncingLog;
+    private int logRecords;
+    private long logBytes;
+    private boolean compactionScheduled;
+    private ScheduledExecutorService backgroundExecutor;
+    private ScheduledFuture<?> scheduledFlush;
+    private int pendingChanges;
+    private volatile ManagerSaveException backgroundFailure;
+    private final AtomicReference<ManagerSaveException> logFailure = new AtomicReference<>();
+    private ReplicationSource replicationSource;
+
+    public enum PersistenceMode {
+        SNAPSHOT,
+        WRITE_AHEAD_LOG,
+        // Writes the same log as WRITE_AHEAD_LOG, but without blocking the caller: records go out through
+        // an asynchronous channel and whenDurable() tells when they have reached the file.
+        ASYNC_LOG,
+        ASYNC_SNAPSHOT,
+        // Flushes in the background like ASYNC_SNAPSHOT, but appends only the records changed since the previous
+        // flush to the log and merges the log into the snapshot like WRITE_AHEAD_LOG.
+        DELTA
+    }
+
+    public enum SnapshotFormat {
+        CSV,
+        BINARY,
+        CSV_GZIP
+    }
+
+    // NEVER leaves flushing to the OS, SNAPSHOTS syncs every installed snapshot, ALWAYS also syncs each log record.
+    public enum FsyncPolicy {
+        NEVER,
+        SNAPSHOTS,
+        ALWAYS
+    }
+
+    // ON_DISK keeps long descriptions in the CSV snapshot and reads them back on demand.
+    // Records added or changed since the last snapshot hold theirs in memory until the next one is written.
+    public enum DescriptionStorage {
+        IN_MEMORY,
+        ON_DISK
+    }
+
+    enum LogOperation {
+        ADD,
+        UPDATE,
+        DELETE,
+        DELETE_ALL
+    }
+
+    // Collects the settings of a manager; build() starts with an empty board, load() restores the one in the file.
+    // The flush settings apply to ASYNC_SNAPSHOT and DELTA, the compaction ones to the modes that keep a log.
+    public static final class Builder {
+        private final File file;
+        private PersistenceMode persistenceMode = PersistenceMode.SNAPSHOT;
+        private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER;
+        private DescriptionStorage descriptionStorage = DescriptionStorage.IN_MEMORY;
+        private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
+        private int flushThreshold = DEFAULT_FLUSH_THRESHOLD;
+        private int compactionRecords = DEFAULT_COMPACTION_RECORDS;
+        private long compactionBytes = DEFAULT_COMPACTION_BYTES;
+        private ForkJoinPool parsePool;
+
+        private Builder(File file) {
+            this.file = Objects.requireNonNull(file, "File must not be null");
+        }
+
+        public Builder persistenceMode(PersistenceMode persistenceMode) {
+            this.persistenceMode = Objects.requireNonNull(persistenceMode, "Persistence mode must not be null");
+            return this;
+        }
+
+        public Builder snapshotFormat(SnapshotFormat snapshotFormat) {
+            this.snapshotFormat = Objects.requireNonNull(snapshotFormat, "Snapshot format must not be null");
+            return this;
+        }
+
+        public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = Objects.requireNonNull(fsyncPolicy, "Fsync policy must not be null");
+            return this;
+        }
+
+        public Builder descriptionStorage(DescriptionStorage descriptionStorage) {
+            this.descriptionStorage = Objects.requireNonNull(descriptionStorage,
+                    "Description storage must not be null");
+            return this;
+        }
+
+        public Builder flushInterval(Duration flushInterval) {
+            this.flushInterval = Objects.requireNonNull(flushInterval, "Flush interval must not be null");
+            return this;
+        }
+
+        public Builder flushThreshold(int flushThreshold) {
+            this.flushThreshold = flushThreshold;
+            return this;
+        }
+
+        public Builder compactionRecords(int compactionRecords) {
+            this.compactionRecords = compactionRecords;
+            return this;
+        }
+
+        public Builder compactionBytes(long compactionBytes) {
+            this.compactionBytes = compactionBytes;
+            return this;
+        }
+
+        // Without a pool, load() parses a large snapshot in the common pool and a small one on the caller's thread.
+        public Builder parsePool(ForkJoinPool parsePool) {
+            this.parsePool = parsePool;
+            return this;
+        }
+
+        public FileBackedTaskManager build() {
+            return new FileBackedTaskManager(this, snapshotFormat);
+        }
+
+        public FileBackedTaskManager load() {
+            return FileBackedTaskManager.load(this);
+        }
+    }
 
     public FileBackedTaskManager(File file) {
-        this.file = file;
+        this(builder(file), SnapshotFormat.CSV);
+    }
+
+    private FileBackedTaskManager(Builder builder, SnapshotFormat snapshotFormat) {
+        if (builder.flushThreshold <= 0) {
+            throw new IllegalArgumentException("Flush threshold must be positive: %s"
+                    .formatted(builder.flushThreshold));
+        }
+        if (builder.compactionRecords <= 0 || builder.compactionBytes <= 0) {
+            throw new IllegalArgumentException("Compaction thresholds must be positive: %s records, %s bytes"
+                    .formatted(builder.compactionRecords, builder.compactionBytes));
+        }
+        if (builder.descriptionStorage == DescriptionStorage.ON_DISK && snapshotFormat != SnapshotFormat.CSV) {
+            throw new IllegalArgumentException("Descriptions can only be kept on disk in a CSV snapshot, not %s"
+                    .formatted(snapshotFormat));
+        }
+        this.file = builder.file;
+        this.persistenceMode = builder.persistenceMode;
+        this.snapshotFormat = snapshotFormat;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.logFile = new File(builder.file.getPath() + ".log");
+        this.snapshotTempFile = new File(builder.file.getPath() + ".tmp");
+        this.saveTempFile = new File(builder.file.getPath() + ".new");
+        this.flushInterval = builder.flushInterval;
+        this.flushThreshold = builder.flushThreshold;
+        this.compactionRecords = builder.compactionRecords;
+        this.compactionBytes = builder.compactionBytes;
+        this.descriptionFile = builder.descriptionStorage == DescriptionStorage.ON_DISK ? new DescriptionFile() : null;
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        change(() -> {
+            detachAll(getAllTasks());
+            super.deleteAllTasks();
+            persist(LogOperation.DELETE_ALL, TaskType.TASK, null);
+        });
     }
 
     @Override
     public void addNewTask(Task task) {
-        super.addNewTask(task);
-        save();
+        change(() -> {
+            super.addNewTask(task);
+            if (task != null) {
+                persist(LogOperation.ADD, task);
+            }
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        change(() -> {
+            detachReplaced(task);
+            super.updateTask(task);
+            persist(LogOperation.UPDATE, task);
+        });
     }
 
     @Override
     public void deleteTask(Integer id) {
-        super.deleteTask(id);
-        save();
+        change(() -> {
+            detach(id);
+            super.deleteTask(id);
+            if (id != null) {
+                persist(LogOperation.DELETE, TaskType.TASK, id);
+            }
+        });
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        save();
+        change(() -> {
+            detachAll(getAllSubtasks());
+            super.deleteAllSubtasks();
+            persist(LogOperation.DELETE_ALL, TaskType.SUBTASK, null);
+        });
     }
 
     @Override
     public void addNewSubtask(Subtask subtask) {
-        super.addNewSubtask(subtask);
-        save();
+        change(() -> {
+            super.addNewSubtask(subtask);
+            if (subtask != null) {
+                persist(LogOperation.ADD, subtask);
+            }
+        });
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        change(() -> {
+            detachReplaced(subtask);
+            super.updateSubtask(subtask);
+            persist(LogOperation.UPDATE, subtask);
+        });
     }
 
     @Override
     public void deleteSubtaskById(Integer id) {
-        super.deleteSubtaskById(id);
-        save();
+        change(() -> {
+            detach(id);
+            super.deleteSubtaskById(id);
+            if (id != null) {
+                persist(LogOperation.DELETE, TaskType.SUBTASK, id);
+            }
+        });
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        change(() -> {
+            detachAll(getAllEpics());
+            detachAll(getAllSubtasks());
+            super.deleteAllEpics();
+            persist(LogOperation.DELETE_ALL, TaskType.EPIC, null);
+        });
     }
 
     @Override
     public void addNewEpic(Epic epic) {
-        super.addNewEpic(epic);
-        save();
+        change(() -> {
+            super.addNewEpic(epic);
+            if (epic != null) {
+                persist(LogOperation.ADD, epic);
+            }
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        change(() -> {
+            super.updateEpic(epic);
+            if (epic != null) {
+                persist(LogOperation.UPDATE, epic);
+            }
+        });
     }
 
     @Override
     public void deleteEpicById(Integer id) {
-        super.deleteEpicById(id);
-        save();
+        change(() -> {
+            if (id != null && peek(id) instanceof Epic epic) {
+                epic.getSubtasks().forEach(this::detach);
+            }
+            detach(id);
+            super.deleteEpicById(id);
+            if (id != null) {
+                persist(LogOperation.DELETE, TaskType.EPIC, id);
+            }
+        });
+    }
+
+    @Override
+    public List<Task> bulkLoad(Collection<? extends Task> records) {
+        return change(() -> {
+            List<Task> conflicts = super.bulkLoad(records);
+            if (persistenceMode == PersistenceMode.SNAPSHOT) {
+                save();
+                return conflicts;
+            }
+            // Log modes write the whole batch at once rather than a write per record.
+            boolean logged = persistenceMode == PersistenceMode.WRITE_AHEAD_LOG
+                    || persistenceMode == PersistenceMode.ASYNC_LOG;
+            Consumer<Task> add = logged ? record -> encodeRecord(LogOperation.ADD, record)
+                    : record -> persist(LogOperation.ADD, record);
+            for (Task record : records) {
+                if (record.getType() == TaskType.EPIC) {
+                    add.accept(record);
+                }
+            }
+            for (Task record : records) {
+                if (record.getType() != TaskType.EPIC) {
+                    add.accept(record);
+                }
+            }
+            if (logged) {
+                writeRecords();
+            }
+            return conflicts;
+        });
+    }
+
+    private void change(Runnable action) {
+        change(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // An ASYNC_LOG change takes its write permit before the manager's lock, so a caller waiting for a free log
+    // buffer does not hold up everyone else. A change that writes nothing gives the permit back.
+    // After a failed log write replay would stop at the gap it left, so changes are refused until save() or
+    // compact() folds the board into a fresh snapshot.
+    private <T> T change(Supplier<T> action) {
+        if (persistenceMode != PersistenceMode.ASYNC_LOG || Thread.holdsLock(this)) {
+            synchronized (this) {
+                return action.get();
+            }
+        }
+        acquireLogPermit();
+        boolean unused = true;
+        try {
+            synchronized (this) {
+                ManagerSaveException failure = logFailure.get();
+                if (failure != null) {
+                    throw new ManagerSaveException("Журнал не записан, изменения не принимаются до сохранения",
+                            failure);
+                }
+                logPermitReserved = true;
+                try {
+                    return action.get();
+                } finally {
+                    unused = logPermitReserved;
+                    logPermitReserved = false;
+                }
+            }
+        } finally {
+            if (unused) {
+                logWritesInFlight.release();
+            }
+        }
     }
 
+    // Records leaving the manager may still be held by callers, and later snapshots no longer contain them.
+    private void detach(Integer id) {
+        if (descriptionFile != null && id != null) {
+            detach(peek(id));
+        }
+    }
+
+    private void detach(Task record) {
+        if (record != null && record.getDescriptionLoader() == descriptionFile) {
+            record.setDescription(record.getDescription());
+        }
+    }
+
+    private void detachReplaced(Task task) {
+        if (descriptionFile != null && task != null && task.getId() != null && peek(task.getId()) != task) {
+            detach(task.getId());
+        }
+    }
+
+    private void detachAll(Collection<? extends Task> records) {
+        if (descriptionFile == null) {
+            return;
+        }
+        records.forEach(this::detach);
+    }
+
+    // In log mode the log is folded into the snapshot, otherwise replaying it on load would apply it twice.
     public void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write("id,type,name,status,description,start_time,duration,epic\n");
-            for (Task task : getAllTasks()) {
-                writer.write(toString(task) + "\n");
+        if (usesLog()) {
+            compactLog();
+        } else {
+            writeSnapshot(renderSnapshot());
+        }
+    }
+
+    public void exportCsv(File target) {
+        exportCsv(target, false);
+    }
+
+    public void exportCsv(File target, boolean compressed) {
+        byte[] csv = renderCsv();
+        try (OutputStream out = compressed ? compress(Files.newOutputStream(target.toPath()))
+                : Files.newOutputStream(target.toPath())) {
+            out.write(csv);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка во время экспорта");
+        }
+    }
+
+    public void flush() {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = backgroundExecutor;
+        }
+        if (persistenceMode == PersistenceMode.ASYNC_LOG) {
+            try {
+                whenDurable().join();
+            } catch (CompletionException e) {
+                // Reported through logFailure below.
             }
-            for (Epic epic : getAllEpics()) {
-                writer.write(toString(epic) + "\n");
+            ManagerSaveException failure = logFailure.get();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        if (executor != null) {
+            try {
+                executor.submit(this::flushPendingChanges).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание сохранения было прервано");
+            } catch (ExecutionException e) {
+                throw new ManagerSaveException("Произошла ошибка во время сохранения");
             }
-            for (Subtask subtask : getAllSubtasks()) {
-                writer.write(toString(subtask) + "\n");
+        }
+        ManagerSaveException failure = backgroundFailure;
+        if (failure != null) {
+            backgroundFailure = null;
+            throw failure;
+        }
+    }
+
+    // Completes once every change made so far has been written; in the snapshot and log modes that is already the case
+    // when the change returns. The future fails if a write failed, as the records after it are then lost on replay.
+    public CompletableFuture<Void> whenDurable() {
+        return switch (persistenceMode) {
+            case SNAPSHOT, WRITE_AHEAD_LOG -> CompletableFuture.completedFuture(null);
+            case ASYNC_LOG -> {
+                synchronized (this) {
+                    yield durableRecords;
+                }
+            }
+            case ASYNC_SNAPSHOT, DELTA -> CompletableFuture.runAsync(() -> {
+                flushPendingChanges();
+                ManagerSaveException failure = backgroundFailure;
+                if (failure != null) {
+                    throw failure;
+                }
+            }, backgroundExecutor());
+        };
+    }
+
+    // Replicas follow the log, so only the modes that write every change to it as it happens can feed them.
+    // DELTA is left out: its batches restate changes a replica may already have received in a snapshot.
+    public synchronized ReplicationSource startReplication(int port) {
+        if (persistenceMode != PersistenceMode.WRITE_AHEAD_LOG && persistenceMode != PersistenceMode.ASYNC_LOG) {
+            throw new IllegalStateException("Replication needs a write-ahead log, not %s".formatted(persistenceMode));
+        }
+        if (replicationSource == null) {
+            replicationSource = new ReplicationSource(port, this, this::renderCsv, this::whenDurable);
+            replicationSource.start();
+        }
+        return replicationSource;
+    }
+
+    public synchronized ReplicationSource getReplicationSource() {
+        return replicationSource;
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                if (backgroundExecutor != null) {
+                    backgroundExecutor.shutdown();
+                    backgroundExecutor = null;
+                }
+                closeLog();
+                if (descriptionFile != null) {
+                    descriptionFile.close();
+                }
+                if (replicationSource != null) {
+                    replicationSource.close();
+                    replicationSource = null;
+                }
             }
+        }
+    }
+
+    private byte[] renderSnapshot() {
+        return switch (snapshotFormat) {
+            case CSV -> renderCsv();
+            case BINARY -> renderBinary();
+            case CSV_GZIP -> renderCompressedCsv();
+        };
+    }
+
+    private byte[] renderCompressedCsv() {
+        byte[] csv = renderCsv();
+        ByteArrayOutputStream compressedCsv = new ByteArrayOutputStream(csv.length / 8);
+        try (OutputStream out = compress(compressedCsv)) {
+            out.write(csv);
         } catch (IOException e) {
-            throw new ManagerSaveException("Произошла ошибка во время сохранения");
+            throw new ManagerSaveException("Произошла ошибка во время сжатия снимка");
+        }
+        return compressedCsv.toByteArray();
+    }
+
+    // Rows repeat type, status and most of the date, so the fastest level already gets most of the gain.
+    private static OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, COMPRESSION_BUFFER_SIZE) {
+            {
+                def.setLevel(COMPRESSION_LEVEL);
+            }
+        };
+    }
+
+    private static boolean isCompressed(File file) {
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            return input.read() == (GZIPInputStream.GZIP_MAGIC & 0xFF)
+                    && input.read() == GZIPInputStream.GZIP_MAGIC >>> 8;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+    }
+
+    private synchronized byte[] renderBinary() {
+        List<Task> snapshot = new ArrayList<>(getAllTasks());
+        snapshot.addAll(getAllEpics());
+        snapshot.addAll(getAllSubtasks());
+        return BinarySnapshotFormat.encode(snapshot);
+    }
+
+    private synchronized byte[] renderCsv() {
+        StringBuilder snapshot = new StringBuilder(TaskCsvCodec.HEADER).append('\n');
+        for (Task task : getAllTasks()) {
+            TaskCsvCodec.write(task, snapshot);
+            snapshot.append('\n');
+        }
+        for (Epic epic : getAllEpics()) {
+            TaskCsvCodec.write(epic, snapshot);
+            snapshot.append('\n');
+        }
+        for (Subtask subtask : getAllSubtasks()) {
+            TaskCsvCodec.write(subtask, snapshot);
+            snapshot.append('\n');
+        }
+        return snapshot.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeSnapshot(byte[] snapshot) {
+        synchronized (snapshotWriteLock) {
+            try {
+                installSnapshot(saveTempFile, snapshot);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка во время сохранения");
+            }
+        }
+    }
+
+    // Descriptions kept on disk switch to the new snapshot only once it is in place.
+    private void installSnapshot(File temp, byte[] snapshot) throws IOException {
+        AtomicFiles.write(temp, file, snapshot, fsyncPolicy);
+        if (descriptionFile != null) {
+            switchDescriptions(snapshot);
+        }
+    }
+
+    // Lazy records keep reading from the old file until the switch. Records holding their description in memory
+    // move to the file only if the manager's lock was held since rendering, as only then the file matches them.
+    private void switchDescriptions(byte[] snapshot) throws IOException {
+        DescriptionFile.Index index = DescriptionFile.index(snapshot);
+        descriptionFile.install(file, index);
+        if (!Thread.holdsLock(this)) {
+            return;
+        }
+        index.forEachId(id -> {
+            Task task = peek(id);
+            if (task != null && task.getDescriptionLoader() != descriptionFile) {
+                descriptionFile.evict(id);
+                task.setDescriptionLoader(descriptionFile);
+            }
+        });
+    }
+
+    private void syncDirectory() {
+        AtomicFiles.syncDirectory(file.getAbsoluteFile().getParentFile(), fsyncPolicy);
+    }
+
+    private void scheduleFlush() {
+        pendingChanges++;
+        if (pendingChanges >= flushThreshold) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+            }
+            scheduledFlush = backgroundExecutor().schedule(this::flushPendingChanges, 0, TimeUnit.MILLISECONDS);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = backgroundExecutor().schedule(this::flushPendingChanges, flushInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized ScheduledExecutorService backgroundExecutor() {
+        if (backgroundExecutor == null) {
+            backgroundExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "file-backed-task-manager-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return backgroundExecutor;
+    }
+
+    public void compact() {
+        if (usesLog()) {
+            compactLog();
+        } else if (persistenceMode == PersistenceMode.ASYNC_SNAPSHOT) {
+            flush();
+        } else {
+            save();
+        }
+    }
+
+    private void compactLog() {
+        synchronized (snapshotWriteLock) {
+            byte[] snapshot;
+            ManagerSaveException coveredFailure;
+            synchronized (this) {
+                compactionScheduled = false;
+                if (logRecords == 0 && changedIds.isEmpty() && removedIds.isEmpty() && clearedTypes.isEmpty()
+                        && file.exists()) {
+                    return;
+                }
+                snapshot = renderSnapshot();
+                clearedTypes.clear();
+                removedIds.clear();
+                changedIds.clear();
+                try {
+                    Files.write(snapshotTempFile.toPath(), new byte[0]);
+                    syncDirectory();
+                    closeLog();
+                    coveredFailure = logFailure.get();
+                    if (logFile.exists()) {
+                        List<File> segments = compactedSegments();
+                        int nextSegment = segments.isEmpty() ? 1 : segmentNumber(segments.getLast()) + 1;
+                        Files.move(logFile.toPath(), new File(file.getPath() + ".log." + nextSegment).toPath());
+                    }
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Произошла ошибка во время сжатия журнала");
+                }
+                logRecords = 0;
+                logBytes = 0;
+            }
+            try {
+                installSnapshot(snapshotTempFile, snapshot);
+                for (File segment : compactedSegments()) {
+                    Files.delete(segment.toPath());
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка во время сжатия журнала");
+            }
+            // The snapshot holds every change whose write failed before it was rendered. Replicas never got those
+            // changes, so they start over from the new state.
+            if (coveredFailure != null && logFailure.compareAndSet(coveredFailure, null)) {
+                ReplicationSource source = getReplicationSource();
+                if (source != null) {
+                    source.resync();
+                }
+            }
+        }
+    }
+
+    // Later records would be lost behind a torn one on replay, so a failed append is cut off right away.
+    private void discardPartialWrite(long intactLength) {
+        if (intactLength < 0) {
+            return;
+        }
+        try {
+            logChannel.truncate(intactLength);
+        } catch (IOException e) {
+            closeLog();
+        }
+    }
+
+    private boolean usesLog() {
+        return persistenceMode == PersistenceMode.WRITE_AHEAD_LOG || persistenceMode == PersistenceMode.ASYNC_LOG
+                || persistenceMode == PersistenceMode.DELTA;
+    }
+
+    private void closeLog() {
+        if (asyncLogChannel != null) {
+            try {
+                durableRecords.join();
+            } catch (CompletionException e) {
+                // The failure has already been reported to whoever waits for these records.
+            }
+            try {
+                asyncLogChannel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка во время закрытия журнала");
+            } finally {
+                asyncLogChannel = null;
+                durableRecords = CompletableFuture.completedFuture(null);
+            }
+        }
+        if (logChannel != null) {
+            try {
+                logChannel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Произошла ошибка во время закрытия журнала");
+            } finally {
+                logChannel = null;
+            }
+        }
+    }
+
+    // Runs on the flush thread: the snapshot is rendered under the manager's lock and written outside it.
+    private void flushPendingChanges() {
+        byte[] snapshot;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (pendingChanges == 0) {
+                return;
+            }
+            pendingChanges = 0;
+            if (persistenceMode == PersistenceMode.DELTA) {
+                try {
+                    writeDelta();
+                } catch (ManagerSaveException e) {
+                    backgroundFailure = e;
+                }
+                return;
+            }
+            snapshot = renderSnapshot();
+        }
+        try {
+            writeSnapshot(snapshot);
+        } catch (ManagerSaveException e) {
+            backgroundFailure = e;
         }
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            reader.readLine();
-            while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                Task task = fromString(line);
-                TaskType taskType = task.getType();
-                if (taskType == TaskType.TASK) {
-                    manager.addNewTask(task);
-                } else if (taskType == TaskType.EPIC) {
-                    manager.addNewEpic((Epic) task);
-                } else {
-                    manager.addNewSubtask((Subtask) task);
+        return builder(file).load();
+    }
+
+    public static Builder builder(File file) {
+        return new Builder(file);
+    }
+
+    // The snapshot format of an existing file is detected from its content; the configured one applies to a new file.
+    private static FileBackedTaskManager load(Builder builder) {
+        File file = builder.file;
+        boolean binary = file.exists() && BinarySnapshotFormat.isBinarySnapshot(file);
+        boolean compressed = !binary && file.exists() && isCompressed(file);
+        SnapshotFormat snapshotFormat = !file.exists() ? builder.snapshotFormat : binary ? SnapshotFormat.BINARY
+                : compressed ? SnapshotFormat.CSV_GZIP : SnapshotFormat.CSV;
+        ForkJoinPool parsePool = builder.parsePool;
+        if (parsePool == null && file.length() >= PARALLEL_LOAD_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            parsePool = ForkJoinPool.commonPool();
+        }
+        // Descriptions kept on disk are indexed while the snapshot is read on this thread.
+        if (builder.descriptionStorage == DescriptionStorage.ON_DISK) {
+            parsePool = null;
+        }
+        FileBackedTaskManager manager = new FileBackedTaskManager(builder, snapshotFormat);
+        List<Task> records = new ArrayList<>();
+        if (binary) {
+            BinarySnapshotFormat.decode(file, records::add);
+        } else if (file.exists() && parsePool != null && !compressed) {
+            records = ParallelCsvLoader.parse(file, parsePool);
+        } else if (file.exists()) {
+            manager.loadSnapshot(records::add);
+        }
+        manager.restoreAll(records);
+        if (manager.usesLog()) {
+            manager.recoverLog();
+        }
+        return manager;
+    }
+
+    // A compaction moves the log aside as a numbered segment, installs the new snapshot by renaming the temp file
+    // over it and then drops the segments. While the temp file exists the segments are not covered by the snapshot.
+    // A log left in the format without checksums is folded into the snapshot right away, so new records are never
+    // appended after old ones.
+    private void recoverLog() {
+        boolean legacy = false;
+        List<File> segments = compactedSegments();
+        replaying = true;
+        try {
+            if (snapshotTempFile.exists() && !segments.isEmpty()) {
+                for (File segment : segments) {
+                    legacy |= replayLog(segment);
                 }
+            } else {
+                segments.forEach(File::delete);
+                snapshotTempFile.delete();
+            }
+            if (logFile.exists()) {
+                legacy |= replayLog(logFile);
+            }
+        } finally {
+            replaying = false;
+        }
+        if (legacy) {
+            compactLog();
+        }
+    }
+
+    private List<File> compactedSegments() {
+        String prefix = file.getName() + ".log.";
+        File[] segments = file.getAbsoluteFile().getParentFile().listFiles((directory, name) ->
+                name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit));
+        if (segments == null) {
+            return new ArrayList<>();
+        }
+        List<File> sortedSegments = new ArrayList<>(Arrays.asList(segments));
+        sortedSegments.sort(Comparator.comparingInt(FileBackedTaskManager::segmentNumber));
+        return sortedSegments;
+    }
+
+    private static int segmentNumber(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    // A compressed snapshot is inflated block by block as the reader asks for more input.
+    private void loadSnapshot(Consumer<Task> consumer) {
+        DescriptionFile.Index descriptions = descriptionFile != null ? new DescriptionFile.Index() : null;
+        try (InputStream in = snapshotFormat == SnapshotFormat.CSV_GZIP
+                ? new GZIPInputStream(Files.newInputStream(file.toPath()), COMPRESSION_BUFFER_SIZE)
+                : Files.newInputStream(file.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            boolean hasRecord = reader.next();
+            if (hasRecord && TaskCsvCodec.isHeader(reader)) {
+                hasRecord = reader.next();
+            }
+            while (hasRecord) {
+                Task task = TaskCsvCodec.read(reader, 0);
+                if (descriptions != null && descriptions.add(reader)) {
+                    task.setDescriptionLoader(descriptionFile);
+                }
+                consumer.accept(task);
+                hasRecord = reader.next();
+            }
+            if (descriptions != null) {
+                descriptionFile.install(file, descriptions);
             }
         } catch (IOException e) {
             throw new ManagerLoadException("Произошла ошибка во время загрузки");
         }
-        return manager;
     }
 
-    private static Task fromString(String line) {
-        String[] taskValues = line.split(",");
-        Integer id = Integer.parseInt(taskValues[0]);
-        TaskType taskType = TaskType.valueOf(taskValues[1]);
-        String name = taskValues[2];
-        Status status = Status.valueOf(taskValues[3]);
-        String description = taskValues[4];
-        LocalDateTime startTime = LocalDateTime.parse(taskValues[5], formatter);
-        Duration duration = Duration.parse(taskValues[6]);
-
-        Task task;
-        if (taskType == TaskType.TASK) {
-            task = new Task(name, description, status, startTime, duration);
-            task.setId(id);
-        } else if (taskType == TaskType.EPIC) {
-            task = new Epic(name, description, status, startTime, duration);
-            task.setId(id);
-        } else {
-            Integer epicId = Integer.parseInt(taskValues[7]);
-            task = new Subtask(name, description, status, epicId, startTime, duration);
-            task.setId(id);
+    // Replays records up to the first one that is cut short or fails its checksum and cuts the log off there.
+    // Returns whether the log was written before records carried checksums.
+    private boolean replayLog(File log) {
+        if (isLegacyLog(log)) {
+            replayLegacyLog(log);
+            return true;
+        }
+        long intactLength = 0;
+        try (InputStream in = Files.newInputStream(log.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            while (nextIntactRecord(reader)) {
+                TaskLogRecords.apply(reader, 1, this);
+                logRecords++;
+                intactLength = reader.recordEndOffset();
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время чтения журнала");
+        }
+        if (intactLength < log.length()) {
+            System.out.println("Ошибка: журнал %s повреждён, отброшено %d байт в конце"
+                    .formatted(log.getName(), log.length() - intactLength));
+            try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(intactLength);
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    channel.force(true);
+                }
+            } catch (IOException e) {
+                throw new ManagerLoadException("Произошла ошибка во время восстановления журнала");
+            }
+        }
+        logBytes += intactLength;
+        return false;
+    }
+
+    // Old records start with the operation; checksummed ones have it in the second field.
+    private static boolean isLegacyLog(File log) {
+        try (InputStream in = Files.newInputStream(log.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            return reader.next() && reader.fieldCount() >= 3 && isOperation(reader, 0) && !isOperation(reader, 1);
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время чтения журнала");
+        }
+    }
+
+    private static boolean isOperation(CsvReader reader, int field) {
+        try {
+            reader.enumValue(field, LogOperation.values());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Without checksums a damaged record cannot be told from a torn one, so nothing is cut off and loading stops.
+    private void replayLegacyLog(File log) {
+        try (InputStream in = Files.newInputStream(log.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            while (reader.next()) {
+                try {
+                    TaskLogRecords.apply(reader, 0, this);
+                } catch (ManagerLoadException | IllegalArgumentException | IndexOutOfBoundsException
+                         | DateTimeException e) {
+                    throw new ManagerLoadException("Журнал %s в старом формате повреждён на смещении %d"
+                            .formatted(log.getName(), reader.recordOffset()));
+                }
+                logRecords++;
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время чтения журнала");
+        }
+        logBytes += log.length();
+    }
+
+    private boolean nextIntactRecord(CsvReader reader) throws IOException {
+        try {
+            if (!reader.next() || !reader.recordTerminated() || reader.fieldCount() < 3) {
+                return false;
+            }
+            checksum.reset();
+            reader.updateChecksum(checksum, 1);
+            return reader.hexValue(0) == (int) checksum.getValue();
+        } catch (ManagerLoadException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void restoreAll(List<Task> records) {
+        List<Task> conflicts = super.bulkLoad(records);
+        if (!conflicts.isEmpty()) {
+            System.out.println("Ошибка: задачи пересекаются по времени и не попали в приоритетный список: "
+                    + conflicts.stream().map(Task::getId).toList());
+        }
+    }
+
+    private void persist(LogOperation operation, Task task) {
+        if (replaying) {
+            return;
+        }
+        switch (persistenceMode) {
+            case SNAPSHOT -> save();
+            case ASYNC_SNAPSHOT -> scheduleFlush();
+            case DELTA -> {
+                markChanged(operation, task.getId());
+                scheduleFlush();
+            }
+            case WRITE_AHEAD_LOG, ASYNC_LOG -> {
+                encodeRecord(operation, task);
+                writeRecords();
+            }
+        }
+    }
+
+    private void persist(LogOperation operation, TaskType taskType, Integer id) {
+        if (replaying) {
+            return;
+        }
+        switch (persistenceMode) {
+            case SNAPSHOT -> save();
+            case ASYNC_SNAPSHOT -> scheduleFlush();
+            case DELTA -> {
+                if (id == null) {
+                    markCleared(taskType);
+                } else {
+                    markRemoved(taskType, id);
+                }
+                scheduleFlush();
+            }
+            case WRITE_AHEAD_LOG, ASYNC_LOG -> {
+                encodeRecord(operation, taskType, id);
+                writeRecords();
+            }
+        }
+    }
+
+    private void markChanged(LogOperation operation, int id) {
+        if (operation == LogOperation.ADD || changedIds.get(id) != LogOperation.ADD) {
+            changedIds.put(id, operation);
+        }
+    }
+
+    // A record created and removed between two flushes never reaches the file.
+    private void markRemoved(TaskType taskType, int id) {
+        if (changedIds.remove(id) != LogOperation.ADD) {
+            removedIds.put(id, taskType);
+        }
+    }
+
+    private void markCleared(TaskType taskType) {
+        clearedTypes.add(taskType);
+        IntArrayList covered = new IntArrayList();
+        changedIds.forEachKey(id -> {
+            if (peek(id) == null) {
+                covered.addInt(id);
+            }
+        });
+        removedIds.forEachKey(id -> {
+            TaskType removedType = removedIds.get(id);
+            if (removedType == taskType || taskType == TaskType.EPIC && removedType == TaskType.SUBTASK) {
+                covered.addInt(id);
+            }
+        });
+        for (int i = 0; i < covered.size(); i++) {
+            changedIds.remove(covered.getInt(i));
+            removedIds.remove(covered.getInt(i));
+        }
+    }
+
+    // Writes the current state of every record touched since the previous flush as one batch of log records.
+    // Updated tasks and subtasks are written as a delete followed by an add, and all deletes go first,
+    // so replaying the batch never trips over time slots that were swapped between flushes.
+    private void writeDelta() {
+        for (TaskType taskType : clearedTypes) {
+            encodeRecord(LogOperation.DELETE_ALL, taskType, null);
         }
-        return task;
+        for (TaskType taskType : new TaskType[]{TaskType.SUBTASK, TaskType.TASK, TaskType.EPIC}) {
+            removedIds.forEachKey(id -> {
+                if (removedIds.get(id) == taskType) {
+                    encodeRecord(LogOperation.DELETE, taskType, id);
+                }
+            });
+        }
+        List<Epic> updatedEpics = new ArrayList<>();
+        List<Task> addedEpics = new ArrayList<>();
+        List<Task> added = new ArrayList<>();
+        changedIds.forEachKey(id -> {
+            Task task = peek(id);
+            if (task == null) {
+                return;
+            }
+            boolean created = changedIds.get(id) == LogOperation.ADD;
+            if (task instanceof Epic epic) {
+                if (created) {
+                    addedEpics.add(epic);
+                } else {
+                    updatedEpics.add(epic);
+                }
+                return;
+            }
+            if (!created) {
+                encodeRecord(LogOperation.DELETE, task.getType(), id);
+            }
+            added.add(task);
+        });
+        addedEpics.forEach(epic -> encodeRecord(LogOperation.ADD, epic));
+        updatedEpics.forEach(epic -> encodeRecord(LogOperation.UPDATE, epic));
+        added.forEach(task -> encodeRecord(LogOperation.ADD, task));
+        writeRecords();
+        clearedTypes.clear();
+        removedIds.clear();
+        changedIds.clear();
+    }
+
+    private void encodeRecord(LogOperation operation, Task task) {
+        recordBuilder.setLength(0);
+        recordBuilder.append(operation).append(',');
+        TaskCsvCodec.write(task, recordBuilder);
+        encodeRecord();
     }
 
-    private String toString(Task task) {
-        TaskType type = task.getType();
+    private void encodeRecord(LogOperation operation, TaskType taskType, Integer id) {
+        recordBuilder.setLength(0);
+        recordBuilder.append(operation).append(',').append(taskType);
+        if (id != null) {
+            recordBuilder.append(',').append(id.intValue());
+        }
+        encodeRecord();
+    }
 
-        if (type == TaskType.SUBTASK) {
-            Subtask subtask = (Subtask) task;
-            return String.format("%d,%s,%s,%s,%s,%s,%s,%s",
-                    subtask.getId(), subtask.getType(), subtask.getName(), subtask.getStatus(),
-                    subtask.getDescription(), subtask.getEpicId(), subtask.getStartTime(), subtask.getDuration());
+    // Each record is prefixed with the CRC32C of the rest of the line.
+    private void encodeRecord() {
+        byte[] body = recordBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        checksum.reset();
+        checksum.update(body);
+        int crc = (int) checksum.getValue();
+        for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+            pendingRecords.write(HEX_DIGITS[crc >>> (28 - 4 * i) & 0xF]);
+        }
+        pendingRecords.write(',');
+        pendingRecords.write(body, 0, body.length);
+        pendingRecords.write('\n');
+        pendingRecordCount++;
+    }
+
+    // Encoded records go out in a single write.
+    private void writeRecords() {
+        if (pendingRecordCount == 0) {
+            return;
+        }
+        int records = pendingRecordCount;
+        int bytes = pendingRecords.size();
+        byte[] shipped = replicationSource != null ? pendingRecords.toByteArray() : null;
+        if (persistenceMode == PersistenceMode.ASYNC_LOG) {
+            submitRecords();
         } else {
-            return String.format("%d,%s,%s,%s,%s,%s,%s,",
-                    task.getId(), task.getType(), task.getName(), task.getStatus(),
-                    task.getDescription(), task.getStartTime(), task.getDuration());
+            appendRecords();
+        }
+        if (shipped != null) {
+            shipWhenDurable(shipped, replicationSource.reserve(records));
+        }
+        logRecords += records;
+        logBytes += bytes;
+        if (!compactionScheduled && (logRecords >= compactionRecords || logBytes >= compactionBytes)) {
+            compactionScheduled = true;
+            backgroundExecutor().execute(() -> {
+                try {
+                    compactLog();
+                } catch (ManagerSaveException e) {
+                    backgroundFailure = e;
+                }
+            });
+        }
+    }
+
+    // An async batch is shipped after it is written, as part of the durability chain, so batches reach replicas
+    // in log order and one whose write failed never does.
+    private void shipWhenDurable(byte[] shipped, long batchSequence) {
+        ReplicationSource source = replicationSource;
+        if (persistenceMode == PersistenceMode.ASYNC_LOG) {
+            durableRecords = durableRecords.thenRun(() -> source.ship(shipped, batchSequence));
+        } else {
+            source.ship(shipped, batchSequence);
+        }
+    }
+
+    private void appendRecords() {
+        long intactLength = -1;
+        try {
+            if (logChannel == null) {
+                logChannel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            intactLength = logChannel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(pendingRecords.toByteArray());
+            while (buffer.hasRemaining()) {
+                logChannel.write(buffer);
+            }
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                logChannel.force(false);
+            }
+        } catch (IOException e) {
+            discardPartialWrite(intactLength);
+            throw new ManagerSaveException("Произошла ошибка во время записи в журнал");
+        } finally {
+            pendingRecords.reset();
+            pendingRecordCount = 0;
+        }
+    }
+
+    // Each batch gets its place in the log under the manager's lock, so writes can overlap without reordering it.
+    // Replay stops at the first gap, so a batch only counts as durable once every batch before it is.
+    private void submitRecords() {
+        ByteBuffer buffer;
+        long position;
+        try {
+            if (asyncLogChannel == null) {
+                asyncLogChannel = AsynchronousFileChannel.open(logFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+                asyncLogPosition = asyncLogChannel.size();
+            }
+            if (!logPermitReserved) {
+                throw new IllegalStateException("Async log write without a reserved permit");
+            }
+            logPermitReserved = false;
+            buffer = takeLogBuffer(pendingRecords.size());
+            buffer.put(pendingRecords.toByteArray()).flip();
+            position = asyncLogPosition;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка во время записи в журнал");
+        } finally {
+            pendingRecords.reset();
+            pendingRecordCount = 0;
+        }
+        asyncLogPosition += buffer.remaining();
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        writeAt(asyncLogChannel, buffer, position, written);
+        durableRecords = durableRecords.thenCombine(written, (previous, current) -> null);
+    }
+
+    private void writeAt(AsynchronousFileChannel channel, ByteBuffer buffer, long position,
+                         CompletableFuture<Void> written) {
+        channel.write(buffer, position, null, new CompletionHandler<>() {
+            @Override
+            public void completed(Integer count, Object attachment) {
+                if (buffer.hasRemaining()) {
+                    writeAt(channel, buffer, position + count, written);
+                    return;
+                }
+                releaseLogBuffer(buffer);
+                if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                    syncLog(channel, written);
+                } else {
+                    written.complete(null);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Object attachment) {
+                releaseLogBuffer(buffer);
+                ManagerSaveException failure = new ManagerSaveException("Произошла ошибка во время записи в журнал",
+                        e);
+                logFailure.compareAndSet(null, failure);
+                written.completeExceptionally(failure);
+            }
+        });
+    }
+
+    // Writes that finish while a sync is running wait for the next one, so a single force covers all of them.
+    private void syncLog(AsynchronousFileChannel channel, CompletableFuture<Void> written) {
+        synchronized (logSyncLock) {
+            writesAwaitingSync.add(written);
+            if (syncingLog) {
+                return;
+            }
+            syncingLog = true;
+        }
+        while (true) {
+            List<CompletableFuture<Void>> synced;
+            synchronized (logSyncLock) {
+                if (writesAwaitingSync.isEmpty()) {
+                    syncingLog = false;
+                    return;
+                }
+                synced = writesAwaitingSync;
+                writesAwaitingSync = new ArrayList<>();
+            }
+            try {
+                channel.force(false);
+                synced.forEach(future -> future.complete(null));
+            } catch (IOException e) {
+                ManagerSaveException failure = new ManagerSaveException("Произошла ошибка во время записи в журнал",
+                        e);
+                logFailure.compareAndSet(null, failure);
+                synced.forEach(future -> future.completeExceptionally(failure));
+            }
+        }
+    }
+
+    // At most MAX_LOG_WRITES_IN_FLIGHT batches are written at once; past that the caller waits for a free buffer.
+    private void acquireLogPermit() {
+        try {
+            logWritesInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи в журнал было прервано");
+        }
+    }
+
+    // Called with a permit taken by acquireLogPermit; releaseLogBuffer gives it back.
+    private ByteBuffer takeLogBuffer(int size) {
+        if (size > LOG_BUFFER_SIZE) {
+            return ByteBuffer.allocate(size);
+        }
+        synchronized (logBuffers) {
+            ByteBuffer buffer = logBuffers.poll();
+            return buffer != null ? buffer : ByteBuffer.allocateDirect(LOG_BUFFER_SIZE);
+        }
+    }
+
+    private void releaseLogBuffer(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            buffer.clear();
+            synchronized (logBuffers) {
+                logBuffers.push(buffer);
+            }
         }
+        logWritesInFlight.release();
     }
 }
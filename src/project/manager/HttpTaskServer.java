@@ -1,26 +1,69 @@
 package project.manager;
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
 import project.manager.handlers.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
     private final HttpServer httpServer;
+    private final ExecutorService executor;
     private static final int PORT = 8080;
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int HISTORY_CAPACITY = 10_000;
+
+    // On JDK 21 HttpServer reads request bodies inside a synchronized block, so a slow upload pins
+    // the carrier of a virtual thread. The bounded platform pool is the safer default until JDK 24.
+    public enum ExecutorMode {
+        VIRTUAL_THREADS,
+        PLATFORM_POOL,
+        DISPATCHER_THREAD
+    }
 
     public HttpTaskServer(TaskManager taskManager) throws IOException {
-        httpServer = HttpServer.create(new InetSocketAddress(8080), 0);
+        this(taskManager, taskManager instanceof ConcurrentTaskManager
+                ? ExecutorMode.PLATFORM_POOL
+                : ExecutorMode.DISPATCHER_THREAD, DEFAULT_POOL_SIZE);
+    }
+
+    public HttpTaskServer(TaskManager taskManager, ExecutorMode executorMode, int poolSize) throws IOException {
+        this(taskManager, executorMode, poolSize, PORT);
+    }
+
+    public HttpTaskServer(TaskManager taskManager, ExecutorMode executorMode, int poolSize, int port)
+            throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = switch (executorMode) {
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+            case PLATFORM_POOL -> Executors.newFixedThreadPool(poolSize);
+            case DISPATCHER_THREAD -> null;
+        };
+        httpServer.setExecutor(executor);
         createContexts(taskManager);
     }
 
     private void createContexts(TaskManager taskManager) {
-        httpServer.createContext("/tasks", new TaskHandler(taskManager));
-        httpServer.createContext("/epics", new EpicHandler(taskManager));
-        httpServer.createContext("/subtasks", new SubtaskHandler(taskManager));
-        httpServer.createContext("/history", new HistoryHandler(taskManager));
-        httpServer.createContext("/prioritized", new PrioritizedHandler(taskManager));
+        JsonLinesHandler jsonLinesHandler = new JsonLinesHandler(taskManager);
+        List<HttpContext> contexts = List.of(
+                httpServer.createContext("/tasks", new TaskHandler(taskManager)),
+                httpServer.createContext("/epics", new EpicHandler(taskManager)),
+                httpServer.createContext("/subtasks", new SubtaskHandler(taskManager)),
+                httpServer.createContext("/history", new HistoryHandler(taskManager)),
+                httpServer.createContext("/prioritized", new PrioritizedHandler(taskManager)),
+                httpServer.createContext("/export", jsonLinesHandler),
+                httpServer.createContext("/import", jsonLinesHandler));
+        httpServer.createContext("/replication", new ReplicationHandler(taskManager));
+        if (taskManager instanceof ReplicaTaskManager replica) {
+            contexts.forEach(context -> context.getFilters().add(new ReadOnlyReplicaFilter(replica)));
+        }
     }
 
     public void startServer() {
@@ -30,15 +73,58 @@ public class HttpTaskServer {
 
     public void stopServer() {
         httpServer.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
         System.out.println("Server stopped");
     }
 
+    // Options after the executor mode:
+    //   --port=N                 HTTP port, 8080 by default
+    //   --file=PATH              keep the board in PATH with a write-ahead log instead of only in memory
+    //   --replication-port=N     with --file, ship the log to replicas connecting on this local port
+    //   --replica-of=HOST:PORT   follow the primary listening there and serve reads until promoted
     public static void main(String[] args) throws IOException {
-        TaskManager taskManager = new InMemoryTaskManager();
+        Map<String, String> options = new HashMap<>();
+        ExecutorMode executorMode = null;
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            } else {
+                executorMode = ExecutorMode.valueOf(arg);
+            }
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(PORT)));
+
+        TaskManager taskManager;
+        if (options.containsKey("replica-of")) {
+            String primary = options.get("replica-of");
+            int separator = primary.lastIndexOf(':');
+            ReplicaTaskManager replica = new ReplicaTaskManager(new InetSocketAddress(primary.substring(0, separator),
+                    Integer.parseInt(primary.substring(separator + 1))));
+            replica.start();
+            taskManager = replica;
+        } else if (options.containsKey("file")) {
+            FileBackedTaskManager fileBacked = FileBackedTaskManager.builder(new File(options.get("file")))
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+            if (options.containsKey("replication-port")) {
+                int replicationPort = fileBacked.startReplication(
+                        Integer.parseInt(options.get("replication-port"))).getPort();
+                System.out.println("Replication log shipped on port " + replicationPort);
+            }
+            taskManager = fileBacked;
+        } else {
+            taskManager = new ConcurrentTaskManager(Managers.getDefaultHistory(HISTORY_CAPACITY));
+        }
+        if (executorMode == null) {
+            executorMode = taskManager instanceof ConcurrentTaskManager
+                    ? ExecutorMode.PLATFORM_POOL
+                    : ExecutorMode.DISPATCHER_THREAD;
+        }
 
-        HttpTaskServer httpServer = new HttpTaskServer(taskManager);
+        HttpTaskServer httpServer = new HttpTaskServer(taskManager, executorMode, DEFAULT_POOL_SIZE, port);
 
         httpServer.startServer();
-        System.out.println("Server launched on port " + PORT);
+        System.out.println("Server launched on port " + port);
     }
 }
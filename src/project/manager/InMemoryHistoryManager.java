@@ -2,16 +2,28 @@ package project.manager;
 
 import project.taskType.Task;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.LinkedList;
 
 public class InMemoryHistoryManager implements HistoryManager {
     private final Map<Integer, Node<Task>> history = new HashMap<>();
+    private final int capacity;
     private Node<Task> tail;
     private Node<Task> head;
 
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive: %s".formatted(capacity));
+        }
+        this.capacity = capacity;
+    }
+
     @Override
     public void add(Task task) {
         if (task != null) {
@@ -49,10 +61,19 @@ public class InMemoryHistoryManager implements HistoryManager {
         } else {
             head = node;
         }
+        if (history.size() > capacity) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        Node<Task> oldest = head;
+        history.remove(oldest.getTask().getId());
+        removeNode(oldest);
     }
 
     private List<Task> getTasks() {
-        List<Task> tasks = new LinkedList<>();
+        List<Task> tasks = new ArrayList<>(history.size());
         Node<Task> node = head;
         while (node != null) {
             tasks.add(node.getTask());
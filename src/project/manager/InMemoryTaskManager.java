@@ -1,5 +1,6 @@
 package project.manager;
 
+import project.collections.IntObjectHashMap;
 import project.exceptions.TaskTimeConflictException;
 import project.taskStatus.Status;
 import project.taskType.Epic;
@@ -10,17 +11,24 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    private final HistoryManager historyManager = Managers.getDefaultHistory();
-    private Integer id = 0;
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final Comparator<Task> comparator = Comparator.comparing(Task::getStartTime);
-    private final Set<Task> prioritizedTasks = new TreeSet<>(comparator);
+    private final HistoryManager historyManager;
+    private int id = 0;
+    private final IntObjectHashMap<Task> tasks = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Subtask> subtasks = new IntObjectHashMap<>();
+    private final IntObjectHashMap<Epic> epics = new IntObjectHashMap<>();
+    private final IntObjectHashMap<SubtaskSnapshot> subtaskSnapshots = new IntObjectHashMap<>();
+    private final TimeIntervalIndex prioritizedTasks = new TimeIntervalIndex();
+
+    public InMemoryTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    public InMemoryTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
 
     @Override
     public List<Task> getHistory() {
@@ -29,19 +37,21 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getAllTasks() {
-        return new ArrayList<>(tasks.values());
+        return tasks.values();
     }
 
     @Override
     public void deleteAllTasks() {
-        prioritizedTasks.removeIf(task -> tasks.containsKey(task.getId()));
-        tasks.keySet().forEach(historyManager::remove);
+        tasks.forEachKey(id -> {
+            historyManager.remove(id);
+            prioritizedTasks.remove(id);
+        });
         tasks.clear();
     }
 
     @Override
     public Task getTaskById(Integer id) {
-        Task task = tasks.get(id);
+        Task task = find(tasks, id);
         if (task != null) {
             historyManager.add(task);
             return task;
@@ -52,10 +62,7 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void addNewTask(Task task) {
         if (task != null) {
-            if (task.getId() == null) {
-                Integer id = getGeneratedId();
-                task.setId(id);
-            }
+            assignId(task);
             tasks.put(task.getId(), task);
             addTaskInPrioritizedTasks(task);
         } else {
@@ -67,23 +74,21 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateTask(Task updatedTask) {
         Objects.requireNonNull(updatedTask, "Task for update must not be null");
         var taskId = updatedTask.getId();
-        if (!tasks.containsKey(taskId)) {
+        if (find(tasks, taskId) == null) {
             throw new IllegalArgumentException("No task by id %s".formatted(taskId));
         }
-        var oldTask = tasks.get(taskId);
-        prioritizedTasks.removeIf(task -> task.getId().equals(oldTask.getId()));
         if (hasIntersections(updatedTask)) {
-            prioritizedTasks.add(oldTask);
             throw new TaskTimeConflictException("Task with id=%s has intersection".formatted(taskId));
         }
         tasks.put(taskId, updatedTask);
+        prioritizedTasks.remove(taskId);
         prioritizedTasks.add(updatedTask);
     }
 
     @Override
     public void deleteTask(Integer id) {
-        if (tasks.containsKey(id)) {
-            prioritizedTasks.remove(tasks.get(id));
+        if (find(tasks, id) != null) {
+            prioritizedTasks.remove(id);
             tasks.remove(id);
             historyManager.remove(id);
         } else {
@@ -93,15 +98,18 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return subtasks.values();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        subtasks.keySet().forEach(historyManager::remove);
-        prioritizedTasks.removeIf(subTask -> subtasks.containsKey(subTask.getId()));
+        subtasks.forEachKey(id -> {
+            historyManager.remove(id);
+            prioritizedTasks.remove(id);
+        });
         subtasks.clear();
-        epics.values().forEach(epic -> {
+        subtaskSnapshots.clear();
+        epics.forEachValue(epic -> {
             epic.deleteAllSubtasks();
             updateEpicStatus(epic);
         });
@@ -109,7 +117,7 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Subtask getSubtaskById(Integer id) {
-        Subtask subtask = subtasks.get(id);
+        Subtask subtask = find(subtasks, id);
         if (subtask != null) {
             historyManager.add(subtask);
             return subtask;
@@ -120,15 +128,13 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void addNewSubtask(Subtask subtask) {
         if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
+            Epic epic = find(epics, subtask.getEpicId());
             if (epic != null) {
-                if (subtask.getId() == null) {
-                    subtask.setId(getGeneratedId());
-                }
+                assignId(subtask);
                 subtasks.put(subtask.getId(), subtask);
                 epic.addSubtask(subtask.getId());
+                trackSubtask(epic, subtask);
                 updateEpicStatus(epic);
-                updateEpicTime(epic);
                 addTaskInPrioritizedTasks(subtask);
             } else {
                 throw new IllegalArgumentException("No subtask by id %s".formatted(id));
@@ -142,42 +148,40 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateSubtask(Subtask subtask) {
         Objects.requireNonNull(subtask, "Subtask for update must not be null");
         var subtaskId = subtask.getId();
-        if (!subtasks.containsKey(subtaskId)) {
+        var oldSubtask = find(subtasks, subtaskId);
+        if (oldSubtask == null) {
             throw new IllegalArgumentException("No subtask by id %s".formatted(subtaskId));
         }
         var epicId = subtask.getEpicId();
-        if (!epics.containsKey(epicId)) {
+        var epic = find(epics, epicId);
+        if (epic == null) {
             throw new IllegalArgumentException("No epic by id %s".formatted(subtaskId));
         }
-        var epic = epics.get(epicId);
-        if (!epic.getSubtasks().contains(subtaskId)) {
+        if (!epicId.equals(oldSubtask.getEpicId())) {
             throw new IllegalArgumentException("Subtask with id=%s is not related to epic with id=%s".formatted(subtaskId, epicId));
         }
-        var oldSubtask = subtasks.get(subtaskId);
-        prioritizedTasks.removeIf(task -> task.getId().equals(oldSubtask.getId()));
         if (hasIntersections(subtask)) {
-            prioritizedTasks.add(oldSubtask);
             throw new TaskTimeConflictException("Subtask with id=%s has intersection".formatted(subtaskId));
         }
         subtasks.put(subtaskId, subtask);
+        prioritizedTasks.remove(subtaskId);
         prioritizedTasks.add(subtask);
+        trackSubtask(epic, subtask);
         updateEpicStatus(epic);
-        updateEpicTime(epic);
     }
 
     private boolean hasIntersections(Task newTask) {
-        return prioritizedTasks.stream()
-                .anyMatch(task -> checkIntersections(newTask, task));
+        return prioritizedTasks.hasIntersections(newTask);
     }
 
     @Override
     public void deleteSubtaskById(Integer id) {
-        if (subtasks.containsKey(id)) {
-            prioritizedTasks.remove(subtasks.get(id));
+        if (find(subtasks, id) != null) {
+            prioritizedTasks.remove(id);
             Epic epic = epics.get(subtasks.remove(id).getEpicId());
             epic.deleteSubtask(id);
+            untrackSubtask(epic, id);
             updateEpicStatus(epic);
-            updateEpicTime(epic);
             historyManager.remove(id);
         } else {
             throw new IllegalArgumentException("No subtask by id %s".formatted(id));
@@ -192,54 +196,50 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void updateEpicStatus(Epic epic) {
-        List<Integer> subtasksById = epic.getSubtasks();
-        List<Subtask> subtasksInEpic = getSubtasksInEpic(subtasksById);
-        boolean allSubtasksInEpicNew = true;
-        boolean allSubtasksInEpicDone = true;
+        epic.setStatus(epic.calculateStatus());
+    }
 
-        for (Subtask subtask : subtasksInEpic) {
-            if (!subtask.getStatus().equals(Status.NEW)) {
-                allSubtasksInEpicNew = false;
-            }
-            if (!subtask.getStatus().equals(Status.DONE)) {
-                allSubtasksInEpicDone = false;
-            }
+    private void trackSubtask(Epic epic, Subtask subtask) {
+        SubtaskSnapshot snapshot = new SubtaskSnapshot(subtask.getStatus(), subtask.getStartTime(),
+                subtask.getDuration());
+        SubtaskSnapshot oldSnapshot = subtaskSnapshots.put(subtask.getId(), snapshot);
+        if (oldSnapshot != null) {
+            epic.removeSubtaskStatus(oldSnapshot.status());
+            epic.removeSubtaskTime(oldSnapshot.startTime(), oldSnapshot.duration());
         }
+        epic.addSubtaskStatus(snapshot.status());
+        epic.addSubtaskTime(snapshot.startTime(), snapshot.duration());
+    }
 
-        if (subtasksById.isEmpty() || allSubtasksInEpicNew) {
-            epic.setStatus(Status.NEW);
-        } else if (allSubtasksInEpicDone) {
-            epic.setStatus(Status.DONE);
-        } else {
-            epic.setStatus(Status.IN_PROGRESS);
+    private void untrackSubtask(Epic epic, Integer subtaskId) {
+        SubtaskSnapshot snapshot = subtaskSnapshots.remove(subtaskId);
+        if (snapshot != null) {
+            epic.removeSubtaskStatus(snapshot.status());
+            epic.removeSubtaskTime(snapshot.startTime(), snapshot.duration());
         }
     }
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return epics.values();
     }
 
     @Override
     public void deleteAllEpics() {
-        epics.keySet().forEach(id -> {
+        epics.forEachKey(historyManager::remove);
+        subtasks.forEachKey(id -> {
             historyManager.remove(id);
-            prioritizedTasks.remove(epics.get(id));
-        });
-        subtasks.keySet().forEach(id -> {
-            historyManager.remove(id);
-            prioritizedTasks.remove(subtasks.get(id));
+            prioritizedTasks.remove(id);
         });
         epics.clear();
         subtasks.clear();
+        subtaskSnapshots.clear();
     }
 
     @Override
     public void addNewEpic(Epic epic) {
         if (epic != null) {
-            if (epic.getId() == null) {
-                epic.setId(getGeneratedId());
-            }
+            assignId(epic);
             epics.put(epic.getId(), epic);
         } else {
             System.out.println("Ошибка: попытка добавить пустой эпик");
@@ -250,8 +250,8 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateEpic(Epic updatedEpic) {
         if (updatedEpic != null) {
             Integer epicId = updatedEpic.getId();
-            if (epics.containsKey(epicId)) {
-                Epic epic = epics.get(epicId);
+            Epic epic = find(epics, epicId);
+            if (epic != null) {
                 epic.setName(updatedEpic.getName());
                 epic.setDescription(updatedEpic.getDescription());
             } else {
@@ -264,13 +264,13 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteEpicById(Integer id) {
-        if (epics.containsKey(id)) {
+        if (find(epics, id) != null) {
             Epic epic = epics.remove(id);
-            prioritizedTasks.remove(epic);
             List<Integer> subtasksById = epic.getSubtasks();
             subtasksById.forEach(subtaskId -> {
                 subtasks.remove(subtaskId);
-                prioritizedTasks.remove(subtasks.get(subtaskId));
+                subtaskSnapshots.remove(subtaskId);
+                prioritizedTasks.remove(subtaskId);
                 historyManager.remove(subtaskId);
             });
             historyManager.remove(id);
@@ -279,10 +279,83 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    @Override
+    public List<Task> bulkLoad(Collection<? extends Task> records) {
+        IntObjectHashMap<Epic> loadedEpics = new IntObjectHashMap<>();
+        for (Task record : records) {
+            if (record instanceof Epic epic && epic.getId() != null) {
+                loadedEpics.put(epic.getId(), epic);
+            }
+        }
+        for (Task record : records) {
+            if (record instanceof Subtask subtask && find(epics, subtask.getEpicId()) == null
+                    && find(loadedEpics, subtask.getEpicId()) == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(subtask.getEpicId()));
+            }
+        }
+
+        for (Task record : records) {
+            if (record instanceof Epic epic) {
+                assignId(epic);
+                epics.put(epic.getId(), epic);
+            }
+        }
+        List<Task> timedTasks = new ArrayList<>();
+        IntObjectHashMap<Epic> changedEpics = new IntObjectHashMap<>();
+        for (Task record : records) {
+            if (record instanceof Epic) {
+                continue;
+            }
+            assignId(record);
+            if (record instanceof Subtask subtask) {
+                Epic epic = epics.get(subtask.getEpicId());
+                subtasks.put(subtask.getId(), subtask);
+                epic.addSubtask(subtask.getId());
+                trackSubtask(epic, subtask);
+                changedEpics.put(epic.getId(), epic);
+            } else {
+                tasks.put(record.getId(), record);
+            }
+            if (record.getStartTime() != null && record.getDuration() != null) {
+                timedTasks.add(record);
+            }
+        }
+        changedEpics.forEachValue(this::updateEpicStatus);
+        return prioritizedTasks.addAll(timedTasks);
+    }
+
+    private void assignId(Task task) {
+        if (task.getId() == null) {
+            task.setId(getGeneratedId());
+        } else {
+            reserveId(task.getId());
+        }
+    }
+
     private Integer getGeneratedId() {
         return ++id;
     }
 
+    private void reserveId(int usedId) {
+        id = Math.max(id, usedId);
+    }
+
+    // Looks a record up by id without touching the history.
+    Task peek(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task;
+    }
+
+    private static <T> T find(IntObjectHashMap<T> storage, Integer id) {
+        return id != null ? storage.get(id) : null;
+    }
+
     @Override
     public List<Subtask> getSubtasksInEpic(List<Integer> subtasksById) {
         return subtasksById.stream().map(subtasks::get).collect(Collectors.toList());
@@ -290,7 +363,7 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public Epic getEpicById(Integer id) {
-        Epic epic = epics.get(id);
+        Epic epic = find(epics, id);
         if (epic != null) {
             historyManager.add(epic);
             return epic;
@@ -300,59 +373,15 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return prioritizedTasks.stream().toList();
-    }
-
-    private boolean checkIntersections(Task task1, Task task2) {
-        LocalDateTime startTime1 = task1.getStartTime();
-        LocalDateTime endTime1 = task1.getEndTime();
-
-        LocalDateTime startTime2 = task2.getStartTime();
-        LocalDateTime endTime2 = task2.getEndTime();
-
-        if (Stream.of(startTime1, endTime1, startTime2, endTime2).filter(Objects::nonNull).count() != 4) {
-            return false;
-        }
-
-        return startTime1.isBefore(endTime2) && endTime1.isAfter(startTime2);
+        return prioritizedTasks.getTasks();
     }
 
     private void addTaskInPrioritizedTasks(Task task) {
         if (task.getStartTime() != null && task.getDuration() != null) {
-            if (!hasIntersections(task)) {
-                prioritizedTasks.add(task);
-            }
+            prioritizedTasks.add(task);
         }
     }
 
-    private void updateEpicTime(Epic epic) {
-        List<Subtask> subtasksInEpic = getSubtasksInEpic(epic);
-
-        if (!subtasksInEpic.isEmpty()) {
-            LocalDateTime startTime = subtasksInEpic.stream()
-                    .map(Subtask::getStartTime)
-                    .filter(Objects::nonNull)
-                    .min(LocalDateTime::compareTo)
-                    .orElse(null);
-
-            LocalDateTime endTime = subtasksInEpic.stream()
-                    .map(Subtask::getEndTime)
-                    .filter(Objects::nonNull)
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null);
-
-            Duration duration = subtasksInEpic.stream()
-                    .map(Subtask::getDuration)
-                    .filter(Objects::nonNull)
-                    .reduce(Duration.ZERO, Duration::plus);
-
-            epic.setStartTime(startTime);
-            epic.setEndTime(endTime);
-            epic.setDuration(duration);
-        } else {
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            epic.setDuration(Duration.ZERO);
-        }
+    private record SubtaskSnapshot(Status status, LocalDateTime startTime, Duration duration) {
     }
 }
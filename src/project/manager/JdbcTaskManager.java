@@ -0,0 +1,869 @@
+package project.manager;
+
+import project.collections.IntArrayList;
+import project.collections.IntObjectHashMap;
+import project.exceptions.ManagerLoadException;
+import project.exceptions.ManagerSaveException;
+import project.exceptions.TaskTimeConflictException;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Keeps the board in a relational database, so only the rows a call asks for are held in memory.
+// The schema is plain SQL understood by embedded engines such as H2 and SQLite; the driver is chosen by the
+// JDBC URL and has to be on the runtime classpath. Times are stored as UTC epoch seconds with the nanoseconds in a
+// column of their own, as durations are, so the seconds column alone serves the index.
+// Epic status and duration are derived from the subtask rows with an aggregate query over the epic_id index, and
+// its start and end from the earliest and latest of those rows.
+// Epic objects handed in or out are kept weakly and refreshed in place, as InMemoryTaskManager updates its epics.
+public class JdbcTaskManager implements TaskManager, AutoCloseable {
+    private static final int MIN_LIVE_EPICS_SWEEP = 64;
+    private static final int PAGE_SIZE = 1_000;
+    private static final System.Logger LOGGER = System.getLogger(JdbcTaskManager.class.getName());
+    private static final String COLUMNS = "id, type, name, status, description, start_time, start_nanos, "
+            + "duration_seconds, duration_nanos, end_time, end_nanos, epic_id, scheduled";
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS tasks ("
+                    + "id INTEGER PRIMARY KEY, "
+                    + "type VARCHAR(16) NOT NULL, "
+                    + "name VARCHAR, "
+                    + "status VARCHAR(16), "
+                    + "description VARCHAR, "
+                    + "start_time BIGINT, "
+                    + "start_nanos INTEGER, "
+                    + "duration_seconds BIGINT, "
+                    + "duration_nanos INTEGER, "
+                    + "end_time BIGINT, "
+                    + "end_nanos INTEGER, "
+                    + "epic_id INTEGER, "
+                    + "scheduled INTEGER NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS tasks_epic_id ON tasks (epic_id)",
+            "CREATE INDEX IF NOT EXISTS tasks_start_time ON tasks (start_time)"
+    };
+
+    private final Connection connection;
+    private final HistoryManager historyManager;
+    private final PreparedStatement insert;
+    private final PreparedStatement update;
+    private final PreparedStatement selectById;
+    private final PreparedStatement selectByType;
+    private final PreparedStatement selectPage;
+    private final PreparedStatement selectIdsByType;
+    private final PreparedStatement selectByEpic;
+    private final PreparedStatement selectSubtaskIds;
+    private final PreparedStatement selectSubtaskIdsOfEpic;
+    private final PreparedStatement selectSubtaskIdsInRange;
+    private final PreparedStatement selectScheduled;
+    private final PreparedStatement selectPrecedingSlot;
+    private final PreparedStatement selectSameStartSlot;
+    private final PreparedStatement selectAnyScheduled;
+    private final PreparedStatement deleteById;
+    private final PreparedStatement deleteByType;
+    private final PreparedStatement deleteByEpic;
+    private final PreparedStatement updateEpicDetails;
+    private final PreparedStatement selectEpicAggregate;
+    private final PreparedStatement selectEpicStart;
+    private final PreparedStatement selectEpicEnd;
+    private final PreparedStatement updateEpicAggregate;
+    private final PreparedStatement resetEpics;
+    private final IntObjectHashMap<WeakReference<Epic>> liveEpics = new IntObjectHashMap<>();
+    private int liveEpicsSweepSize = MIN_LIVE_EPICS_SWEEP;
+    private int id;
+
+    public JdbcTaskManager(String url) {
+        this(openConnection(url), Managers.getDefaultHistory());
+    }
+
+    public JdbcTaskManager(Connection connection, HistoryManager historyManager) {
+        this.connection = connection;
+        this.historyManager = historyManager;
+        try {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT MAX(id) FROM tasks")) {
+                    id = resultSet.next() ? resultSet.getInt(1) : 0;
+                }
+            }
+            connection.commit();
+            insert = connection.prepareStatement("INSERT INTO tasks (" + COLUMNS + ") "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            update = connection.prepareStatement("UPDATE tasks SET name = ?, status = ?, description = ?, "
+                    + "start_time = ?, start_nanos = ?, duration_seconds = ?, duration_nanos = ?, end_time = ?, "
+                    + "end_nanos = ?, scheduled = ? WHERE id = ?");
+            selectById = connection.prepareStatement("SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = ?");
+            selectByType = connection.prepareStatement("SELECT " + COLUMNS + " FROM tasks WHERE type = ? "
+                    + "ORDER BY id");
+            selectPage = connection.prepareStatement("SELECT " + COLUMNS + " FROM tasks WHERE type = ? AND id > ? "
+                    + "ORDER BY id LIMIT ?");
+            selectIdsByType = connection.prepareStatement("SELECT id FROM tasks WHERE type = ?");
+            selectByEpic = connection.prepareStatement("SELECT " + COLUMNS + " FROM tasks WHERE epic_id = ? "
+                    + "ORDER BY id");
+            selectSubtaskIds = connection.prepareStatement("SELECT epic_id, id FROM tasks WHERE type = 'SUBTASK' "
+                    + "ORDER BY id");
+            selectSubtaskIdsOfEpic = connection.prepareStatement("SELECT id FROM tasks WHERE epic_id = ? "
+                    + "ORDER BY id");
+            selectSubtaskIdsInRange = connection.prepareStatement("SELECT epic_id, id FROM tasks "
+                    + "WHERE epic_id BETWEEN ? AND ? ORDER BY id");
+            selectScheduled = connection.prepareStatement("SELECT " + COLUMNS + " FROM tasks WHERE scheduled = 1 "
+                    + "AND start_time IS NOT NULL ORDER BY start_time, start_nanos");
+            selectPrecedingSlot = connection.prepareStatement("SELECT end_time, end_nanos FROM tasks "
+                    + "WHERE scheduled = 1 AND start_time <= ? AND (start_time < ? OR start_nanos < ?) AND id <> ? "
+                    + "ORDER BY start_time DESC, start_nanos DESC LIMIT 1");
+            selectSameStartSlot = connection.prepareStatement("SELECT id FROM tasks WHERE scheduled = 1 "
+                    + "AND start_time = ? AND start_nanos = ? AND id <> ? LIMIT 1");
+            selectAnyScheduled = connection.prepareStatement("SELECT id FROM tasks WHERE scheduled = 1 LIMIT 1");
+            deleteById = connection.prepareStatement("DELETE FROM tasks WHERE id = ? AND type = ?");
+            deleteByType = connection.prepareStatement("DELETE FROM tasks WHERE type = ?");
+            deleteByEpic = connection.prepareStatement("DELETE FROM tasks WHERE epic_id = ?");
+            updateEpicDetails = connection.prepareStatement("UPDATE tasks SET name = ?, description = ? "
+                    + "WHERE id = ?");
+            selectEpicAggregate = connection.prepareStatement("SELECT COUNT(status), "
+                    + "SUM(CASE WHEN status = 'NEW' THEN 1 ELSE 0 END), "
+                    + "SUM(CASE WHEN status = 'DONE' THEN 1 ELSE 0 END), "
+                    + "SUM(duration_seconds), SUM(duration_nanos) FROM tasks WHERE epic_id = ?");
+            selectEpicStart = connection.prepareStatement("SELECT start_time, start_nanos FROM tasks "
+                    + "WHERE epic_id = ? AND start_time IS NOT NULL ORDER BY start_time, start_nanos LIMIT 1");
+            selectEpicEnd = connection.prepareStatement("SELECT end_time, end_nanos FROM tasks "
+                    + "WHERE epic_id = ? AND end_time IS NOT NULL ORDER BY end_time DESC, end_nanos DESC LIMIT 1");
+            updateEpicAggregate = connection.prepareStatement("UPDATE tasks SET status = ?, start_time = ?, "
+                    + "start_nanos = ?, end_time = ?, end_nanos = ?, duration_seconds = ?, duration_nanos = ? "
+                    + "WHERE id = ?");
+            resetEpics = connection.prepareStatement("UPDATE tasks SET status = 'NEW', start_time = NULL, "
+                    + "start_nanos = NULL, end_time = NULL, end_nanos = NULL, duration_seconds = 0, duration_nanos = 0 "
+                    + "WHERE type = 'EPIC'");
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Произошла ошибка во время подключения к базе");
+        }
+    }
+
+    private static Connection openConnection(String url) {
+        try {
+            return DriverManager.getConnection(url);
+        } catch (SQLException e) {
+            throw new ManagerLoadException("Не удалось подключиться к базе %s".formatted(url));
+        }
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return read(() -> selectAll(TaskType.TASK));
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        write(() -> deleteAll(TaskType.TASK));
+    }
+
+    @Override
+    public synchronized Task getTaskById(Integer id) {
+        return remember(read(() -> selectOne(id, TaskType.TASK)));
+    }
+
+    @Override
+    public synchronized void addNewTask(Task task) {
+        if (task == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "Попытка добавить пустую задачу");
+            return;
+        }
+        write(() -> {
+            assignId(task);
+            insert(task, fitsSchedule(task));
+            insert.executeUpdate();
+        });
+    }
+
+    @Override
+    public synchronized void updateTask(Task updatedTask) {
+        Objects.requireNonNull(updatedTask, "Task for update must not be null");
+        write(() -> {
+            Integer taskId = updatedTask.getId();
+            if (selectOne(taskId, TaskType.TASK) == null) {
+                throw new IllegalArgumentException("No task by id %s".formatted(taskId));
+            }
+            if (hasIntersections(updatedTask)) {
+                throw new TaskTimeConflictException("Task with id=%s has intersection".formatted(taskId));
+            }
+            updateRow(updatedTask);
+        });
+    }
+
+    @Override
+    public synchronized void deleteTask(Integer id) {
+        write(() -> {
+            if (id == null || deleteOne(id, TaskType.TASK) == 0) {
+                throw new IllegalArgumentException("No task by id %s".formatted(id));
+            }
+        });
+        historyManager.remove(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        return read(() -> selectAll(TaskType.SUBTASK));
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        write(() -> {
+            deleteAll(TaskType.SUBTASK);
+            resetEpics.executeUpdate();
+        });
+        liveEpics.forEachValue(reference -> {
+            Epic epic = reference.get();
+            if (epic != null) {
+                epic.deleteAllSubtasks();
+                epic.setStatus(Status.NEW);
+            }
+        });
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(Integer id) {
+        return remember(read(() -> selectOne(id, TaskType.SUBTASK)));
+    }
+
+    @Override
+    public synchronized void addNewSubtask(Subtask subtask) {
+        if (subtask == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "Попытка добавить пустую подзадачу");
+            return;
+        }
+        write(() -> {
+            if (selectOne(subtask.getEpicId(), TaskType.EPIC) == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(subtask.getEpicId()));
+            }
+            assignId(subtask);
+            insert(subtask, fitsSchedule(subtask));
+            insert.executeUpdate();
+            refreshEpic(subtask.getEpicId());
+        });
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        Objects.requireNonNull(subtask, "Subtask for update must not be null");
+        write(() -> {
+            Integer subtaskId = subtask.getId();
+            Subtask oldSubtask = selectOne(subtaskId, TaskType.SUBTASK);
+            if (oldSubtask == null) {
+                throw new IllegalArgumentException("No subtask by id %s".formatted(subtaskId));
+            }
+            Integer epicId = subtask.getEpicId();
+            if (selectOne(epicId, TaskType.EPIC) == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(epicId));
+            }
+            if (!epicId.equals(oldSubtask.getEpicId())) {
+                throw new IllegalArgumentException("Subtask with id=%s is not related to epic with id=%s"
+                        .formatted(subtaskId, epicId));
+            }
+            if (hasIntersections(subtask)) {
+                throw new TaskTimeConflictException("Subtask with id=%s has intersection".formatted(subtaskId));
+            }
+            updateRow(subtask);
+            refreshEpic(epicId);
+        });
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(Integer id) {
+        write(() -> {
+            Subtask subtask = selectOne(id, TaskType.SUBTASK);
+            if (subtask == null) {
+                throw new IllegalArgumentException("No subtask by id %s".formatted(id));
+            }
+            deleteOne(id, TaskType.SUBTASK);
+            refreshEpic(subtask.getEpicId());
+        });
+        historyManager.remove(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksInEpic(Epic epic) {
+        return read(() -> {
+            selectByEpic.setInt(1, epic.getId());
+            return readTasks(selectByEpic);
+        });
+    }
+
+    @Override
+    public synchronized void updateEpicStatus(Epic epic) {
+        epic.setStatus(write(() -> refreshEpic(epic.getId())));
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        return read(() -> {
+            List<Epic> epics = selectAll(TaskType.EPIC);
+            IntObjectHashMap<Epic> epicsById = new IntObjectHashMap<>(epics.size());
+            epics.forEach(epic -> epicsById.put(epic.getId(), epic));
+            try (ResultSet resultSet = selectSubtaskIds.executeQuery()) {
+                while (resultSet.next()) {
+                    Epic epic = epicsById.get(resultSet.getInt(1));
+                    if (epic != null) {
+                        epic.addSubtask(resultSet.getInt(2));
+                    }
+                }
+            }
+            epics.replaceAll(this::track);
+            return epics;
+        });
+    }
+
+    // Pages through the table in id order and lets go of the manager between pages, so a slow consumer does not
+    // hold up other callers. Records are read fresh and are not tracked like the ones getAllEpics returns.
+    @Override
+    public void forEach(TaskType taskType, Consumer<? super Task> action) {
+        int afterId = Integer.MIN_VALUE;
+        List<Task> page;
+        do {
+            page = readPage(taskType, afterId);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    private synchronized List<Task> readPage(TaskType taskType, int afterId) {
+        return read(() -> {
+            selectPage.setString(1, taskType.name());
+            selectPage.setInt(2, afterId);
+            selectPage.setInt(3, PAGE_SIZE);
+            List<Task> page = readTasks(selectPage);
+            if (taskType == TaskType.EPIC && !page.isEmpty()) {
+                IntObjectHashMap<Epic> epicsById = new IntObjectHashMap<>(page.size());
+                page.forEach(epic -> epicsById.put(epic.getId(), (Epic) epic));
+                selectSubtaskIdsInRange.setInt(1, page.getFirst().getId());
+                selectSubtaskIdsInRange.setInt(2, page.getLast().getId());
+                try (ResultSet resultSet = selectSubtaskIdsInRange.executeQuery()) {
+                    while (resultSet.next()) {
+                        Epic epic = epicsById.get(resultSet.getInt(1));
+                        if (epic != null) {
+                            epic.addSubtask(resultSet.getInt(2));
+                        }
+                    }
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        write(() -> {
+            deleteAll(TaskType.SUBTASK);
+            deleteAll(TaskType.EPIC);
+        });
+        liveEpics.clear();
+    }
+
+    @Override
+    public synchronized void addNewEpic(Epic epic) {
+        if (epic == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "Попытка добавить пустой эпик");
+            return;
+        }
+        write(() -> {
+            assignId(epic);
+            insert(epic, false);
+            insert.executeUpdate();
+        });
+        track(epic);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(Integer id) {
+        Epic epic = read(() -> selectEpic(id));
+        return remember(epic != null ? track(epic) : null);
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic updatedEpic) {
+        if (updatedEpic == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "Попытка обновить эпик пустым значением");
+            return;
+        }
+        write(() -> {
+            updateEpicDetails.setString(1, updatedEpic.getName());
+            updateEpicDetails.setString(2, updatedEpic.getDescription());
+            setInteger(updateEpicDetails, 3, updatedEpic.getId());
+            if (selectOne(updatedEpic.getId(), TaskType.EPIC) == null || updateEpicDetails.executeUpdate() == 0) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(updatedEpic.getId()));
+            }
+        });
+        Epic epic = liveEpic(updatedEpic.getId());
+        if (epic != null) {
+            epic.setName(updatedEpic.getName());
+            epic.setDescription(updatedEpic.getDescription());
+        }
+    }
+
+    @Override
+    public synchronized void deleteEpicById(Integer id) {
+        List<Integer> subtaskIds = write(() -> {
+            Epic epic = selectEpic(id);
+            if (epic == null) {
+                throw new IllegalArgumentException("No epic by id %s".formatted(id));
+            }
+            deleteByEpic.setInt(1, id);
+            deleteByEpic.executeUpdate();
+            deleteOne(id, TaskType.EPIC);
+            return epic.getSubtasks();
+        });
+        subtaskIds.forEach(historyManager::remove);
+        historyManager.remove(id);
+        liveEpics.remove(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksInEpic(List<Integer> subtasksById) {
+        return read(() -> {
+            List<Subtask> subtasks = new ArrayList<>(subtasksById.size());
+            for (Integer subtaskId : subtasksById) {
+                subtasks.add(selectOne(subtaskId, TaskType.SUBTASK));
+            }
+            return subtasks;
+        });
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return read(() -> readTasks(selectScheduled));
+    }
+
+    // Inserts the records with one batched statement in a single transaction and returns the ones left out of the
+    // prioritized list because they intersect another task, like InMemoryTaskManager.bulkLoad.
+    @Override
+    public synchronized List<Task> bulkLoad(Collection<? extends Task> records) {
+        return write(() -> {
+            IntObjectHashMap<Epic> loadedEpics = new IntObjectHashMap<>();
+            for (Task record : records) {
+                if (record instanceof Epic epic && epic.getId() != null) {
+                    loadedEpics.put(epic.getId(), epic);
+                }
+            }
+            for (Task record : records) {
+                if (record instanceof Subtask subtask && loadedEpics.get(subtask.getEpicId()) == null
+                        && selectOne(subtask.getEpicId(), TaskType.EPIC) == null) {
+                    throw new IllegalArgumentException("No epic by id %s".formatted(subtask.getEpicId()));
+                }
+            }
+
+            List<Task> ordered = new ArrayList<>(records.size());
+            records.stream().filter(record -> record instanceof Epic).forEach(ordered::add);
+            records.stream().filter(record -> !(record instanceof Epic)).forEach(ordered::add);
+            ordered.forEach(this::assignId);
+
+            List<Task> timed = new ArrayList<>();
+            for (Task record : ordered) {
+                if (!(record instanceof Epic) && record.getStartTime() != null && record.getDuration() != null) {
+                    timed.add(record);
+                }
+            }
+            // Same order as TimeIntervalIndex.addAll, so the earlier task keeps its slot in every manager.
+            timed.sort(Comparator.comparing(Task::getId));
+            boolean emptySchedule;
+            try (ResultSet resultSet = selectAnyScheduled.executeQuery()) {
+                emptySchedule = !resultSet.next();
+            }
+            TimeIntervalIndex batchSlots = new TimeIntervalIndex();
+            IntObjectHashMap<Task> scheduled = new IntObjectHashMap<>();
+            List<Task> rejected = new ArrayList<>();
+            for (Task record : timed) {
+                if ((emptySchedule || fitsSchedule(record)) && batchSlots.add(record)) {
+                    scheduled.put(record.getId(), record);
+                } else {
+                    rejected.add(record);
+                }
+            }
+
+            // Epics from the batch only have subtasks from the batch, so they are summed up before insertion;
+            // epics already in the database are refreshed with the aggregate query afterwards.
+            IntObjectHashMap<Epic> changedEpics = new IntObjectHashMap<>();
+            IntArrayList changedStoredEpics = new IntArrayList();
+            for (Task record : ordered) {
+                if (record instanceof Subtask subtask) {
+                    Epic epic = loadedEpics.get(subtask.getEpicId());
+                    if (epic != null) {
+                        epic.addSubtask(subtask.getId());
+                        epic.addSubtaskStatus(subtask.getStatus());
+                        epic.addSubtaskTime(subtask.getStartTime(), subtask.getDuration());
+                        changedEpics.put(epic.getId(), epic);
+                    } else if (changedStoredEpics.indexOfInt(subtask.getEpicId()) < 0) {
+                        changedStoredEpics.addInt(subtask.getEpicId());
+                    }
+                }
+            }
+            changedEpics.forEachValue(epic -> epic.setStatus(epic.calculateStatus()));
+            for (Task record : ordered) {
+                insert(record, scheduled.containsKey(record.getId()));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            for (int i = 0; i < changedStoredEpics.size(); i++) {
+                refreshEpic(changedStoredEpics.getInt(i));
+            }
+            for (Task record : ordered) {
+                if (record instanceof Epic epic) {
+                    track(epic);
+                }
+            }
+            return rejected;
+        });
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Произошла ошибка во время закрытия базы");
+        }
+    }
+
+    private void assignId(Task task) {
+        if (task.getId() == null) {
+            task.setId(++id);
+        } else {
+            id = Math.max(id, task.getId());
+        }
+    }
+
+    // Returns the epic object the caller already holds for this id, brought up to date, or starts tracking this one.
+    private Epic track(Epic epic) {
+        Epic live = liveEpic(epic.getId());
+        if (live != null && live != epic) {
+            live.setName(epic.getName());
+            live.setDescription(epic.getDescription());
+            live.setStatus(epic.getStatus());
+            live.setStartTime(epic.getStartTime());
+            live.setEndTime(epic.getEndTime());
+            live.setDuration(epic.getDuration());
+            live.setSubtasks(epic.getSubtasks());
+            return live;
+        }
+        liveEpics.put(epic.getId(), new WeakReference<>(epic));
+        if (liveEpics.size() > liveEpicsSweepSize) {
+            IntArrayList collected = new IntArrayList();
+            liveEpics.forEachKey(epicId -> {
+                if (liveEpics.get(epicId).get() == null) {
+                    collected.addInt(epicId);
+                }
+            });
+            for (int i = 0; i < collected.size(); i++) {
+                liveEpics.remove(collected.getInt(i));
+            }
+            liveEpicsSweepSize = Math.max(MIN_LIVE_EPICS_SWEEP, liveEpics.size() * 2);
+        }
+        return epic;
+    }
+
+    private Epic liveEpic(Integer epicId) {
+        WeakReference<Epic> reference = epicId != null ? liveEpics.get(epicId) : null;
+        return reference != null ? reference.get() : null;
+    }
+
+    private <T extends Task> T remember(T task) {
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    private void deleteAll(TaskType taskType) throws SQLException {
+        selectIdsByType.setString(1, taskType.name());
+        try (ResultSet resultSet = selectIdsByType.executeQuery()) {
+            while (resultSet.next()) {
+                historyManager.remove(resultSet.getInt(1));
+            }
+        }
+        deleteByType.setString(1, taskType.name());
+        deleteByType.executeUpdate();
+    }
+
+    private int deleteOne(int id, TaskType taskType) throws SQLException {
+        deleteById.setInt(1, id);
+        deleteById.setString(2, taskType.name());
+        return deleteById.executeUpdate();
+    }
+
+    private <T extends Task> List<T> selectAll(TaskType taskType) throws SQLException {
+        selectByType.setString(1, taskType.name());
+        return readTasks(selectByType);
+    }
+
+    private <T extends Task> T selectOne(Integer id, TaskType taskType) throws SQLException {
+        if (id == null) {
+            return null;
+        }
+        selectById.setInt(1, id);
+        selectById.setString(2, taskType.name());
+        List<T> found = readTasks(selectById);
+        return found.isEmpty() ? null : found.getFirst();
+    }
+
+    private Epic selectEpic(Integer id) throws SQLException {
+        Epic epic = selectOne(id, TaskType.EPIC);
+        if (epic != null) {
+            epic.setSubtasks(selectSubtaskIds(id));
+        }
+        return epic;
+    }
+
+    private List<Integer> selectSubtaskIds(int epicId) throws SQLException {
+        IntArrayList subtaskIds = new IntArrayList();
+        selectSubtaskIdsOfEpic.setInt(1, epicId);
+        try (ResultSet resultSet = selectSubtaskIdsOfEpic.executeQuery()) {
+            while (resultSet.next()) {
+                subtaskIds.addInt(resultSet.getInt(1));
+            }
+        }
+        return subtaskIds;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> readTasks(PreparedStatement query) throws SQLException {
+        List<T> tasks = new ArrayList<>();
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                tasks.add((T) readTask(resultSet));
+            }
+        }
+        return tasks;
+    }
+
+    private static Task readTask(ResultSet resultSet) throws SQLException {
+        TaskType taskType = TaskType.valueOf(resultSet.getString(2));
+        String name = resultSet.getString(3);
+        String statusName = resultSet.getString(4);
+        Status status = statusName != null ? Status.valueOf(statusName) : null;
+        String description = resultSet.getString(5);
+        LocalDateTime startTime = toDateTime(resultSet, 6);
+        long durationSeconds = resultSet.getLong(8);
+        Duration duration = resultSet.wasNull() ? null : Duration.ofSeconds(durationSeconds, resultSet.getInt(9));
+
+        Task task;
+        if (taskType == TaskType.TASK) {
+            task = new Task(name, description, status, startTime, duration);
+        } else if (taskType == TaskType.EPIC) {
+            Epic epic = new Epic(name, description, status, startTime, duration);
+            epic.setEndTime(toDateTime(resultSet, 10));
+            task = epic;
+        } else {
+            task = new Subtask(name, description, status, resultSet.getInt(12), startTime, duration);
+        }
+        task.setId(resultSet.getInt(1));
+        return task;
+    }
+
+    private void insert(Task task, boolean scheduled) throws SQLException {
+        insert.setInt(1, task.getId());
+        insert.setString(2, task.getType().name());
+        insert.setString(3, task.getName());
+        insert.setString(4, task.getStatus() != null ? task.getStatus().name() : null);
+        insert.setString(5, task.getDescription());
+        setDateTime(insert, 6, task.getStartTime());
+        setDuration(insert, 8, task.getDuration());
+        setDateTime(insert, 10, task.getEndTime());
+        setInteger(insert, 12, task instanceof Subtask subtask ? subtask.getEpicId() : null);
+        insert.setInt(13, scheduled ? 1 : 0);
+    }
+
+    private void updateRow(Task task) throws SQLException {
+        update.setString(1, task.getName());
+        update.setString(2, task.getStatus() != null ? task.getStatus().name() : null);
+        update.setString(3, task.getDescription());
+        setDateTime(update, 4, task.getStartTime());
+        setDuration(update, 6, task.getDuration());
+        setDateTime(update, 8, task.getEndTime());
+        update.setInt(10, fitsSchedule(task) ? 1 : 0);
+        update.setInt(11, task.getId());
+        update.executeUpdate();
+    }
+
+    // Same rules as TimeIntervalIndex: scheduled rows never overlap, so the only row that can intersect
+    // [start, end) is the latest one starting before end, found through the start_time index.
+    private boolean hasIntersections(Task task) throws SQLException {
+        LocalDateTime startTime = task.getStartTime();
+        LocalDateTime endTime = task.getEndTime();
+        if (startTime == null || endTime == null) {
+            return false;
+        }
+        setDateTime(selectSameStartSlot, 1, startTime);
+        setIgnoredId(selectSameStartSlot, 3, task.getId());
+        try (ResultSet resultSet = selectSameStartSlot.executeQuery()) {
+            if (resultSet.next()) {
+                return true;
+            }
+        }
+        long endSeconds = toEpochSecond(endTime);
+        selectPrecedingSlot.setLong(1, endSeconds);
+        selectPrecedingSlot.setLong(2, endSeconds);
+        selectPrecedingSlot.setInt(3, endTime.getNano());
+        setIgnoredId(selectPrecedingSlot, 4, task.getId());
+        try (ResultSet resultSet = selectPrecedingSlot.executeQuery()) {
+            return resultSet.next() && toDateTime(resultSet, 1).isAfter(startTime);
+        }
+    }
+
+    private boolean fitsSchedule(Task task) throws SQLException {
+        return task.getStartTime() != null && task.getEndTime() != null && !hasIntersections(task);
+    }
+
+    private Status refreshEpic(int epicId) throws SQLException {
+        selectEpicAggregate.setInt(1, epicId);
+        Status status;
+        Duration duration;
+        try (ResultSet resultSet = selectEpicAggregate.executeQuery()) {
+            resultSet.next();
+            int withStatus = resultSet.getInt(1);
+            int newCount = resultSet.getInt(2);
+            int doneCount = resultSet.getInt(3);
+            status = newCount == withStatus ? Status.NEW
+                    : doneCount == withStatus ? Status.DONE : Status.IN_PROGRESS;
+            duration = Duration.ofSeconds(resultSet.getLong(4)).plusNanos(resultSet.getLong(5));
+        }
+        LocalDateTime startTime = selectEpicTime(selectEpicStart, epicId);
+        LocalDateTime endTime = selectEpicTime(selectEpicEnd, epicId);
+        updateEpicAggregate.setString(1, status.name());
+        setDateTime(updateEpicAggregate, 2, startTime);
+        setDateTime(updateEpicAggregate, 4, endTime);
+        setDuration(updateEpicAggregate, 6, duration);
+        updateEpicAggregate.setInt(8, epicId);
+        updateEpicAggregate.executeUpdate();
+        Epic live = liveEpic(epicId);
+        if (live != null) {
+            live.setStatus(status);
+            live.setStartTime(startTime);
+            live.setEndTime(endTime);
+            live.setDuration(duration);
+            live.setSubtasks(selectSubtaskIds(epicId));
+        }
+        return status;
+    }
+
+    private static LocalDateTime selectEpicTime(PreparedStatement query, int epicId) throws SQLException {
+        query.setInt(1, epicId);
+        try (ResultSet resultSet = query.executeQuery()) {
+            return resultSet.next() ? toDateTime(resultSet, 1) : null;
+        }
+    }
+
+    private static void setIgnoredId(PreparedStatement statement, int index, Integer ignoredId) throws SQLException {
+        statement.setInt(index, ignoredId != null ? ignoredId : 0);
+    }
+
+    private static void setInteger(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value != null) {
+            statement.setInt(index, value);
+        } else {
+            statement.setNull(index, Types.INTEGER);
+        }
+    }
+
+    // Sets the seconds at index and the nanoseconds after them.
+    private static void setDateTime(PreparedStatement statement, int index, LocalDateTime time) throws SQLException {
+        if (time != null) {
+            statement.setLong(index, toEpochSecond(time));
+            statement.setInt(index + 1, time.getNano());
+        } else {
+            statement.setNull(index, Types.BIGINT);
+            statement.setNull(index + 1, Types.INTEGER);
+        }
+    }
+
+    private static void setDuration(PreparedStatement statement, int index, Duration duration) throws SQLException {
+        if (duration != null) {
+            statement.setLong(index, duration.getSeconds());
+            statement.setInt(index + 1, duration.getNano());
+        } else {
+            statement.setNull(index, Types.BIGINT);
+            statement.setNull(index + 1, Types.INTEGER);
+        }
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(ResultSet resultSet, int index) throws SQLException {
+        long seconds = resultSet.getLong(index);
+        return resultSet.wasNull() ? null
+                : LocalDateTime.ofEpochSecond(seconds, resultSet.getInt(index + 1), ZoneOffset.UTC);
+    }
+
+    private <T> T read(SqlWork<T> work) {
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            throw rollback(new ManagerLoadException("Произошла ошибка во время чтения из базы", e));
+        }
+    }
+
+    private void write(SqlAction action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T write(SqlWork<T> work) {
+        try {
+            T result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            throw rollback(new ManagerSaveException("Произошла ошибка во время записи в базу", e));
+        } catch (RuntimeException e) {
+            throw rollback(e);
+        }
+    }
+
+    // A failed rollback travels with the failure that caused it instead of replacing it.
+    private RuntimeException rollback(RuntimeException failure) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+}
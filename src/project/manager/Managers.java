@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import project.manager.adapters.DurationAdapter;
 import project.manager.adapters.LocalDateTimeAdapter;
+import project.manager.adapters.TaskAdapterFactory;
 
 import java.io.File;
 import java.time.Duration;
@@ -15,19 +16,36 @@ public class Managers {
     }
 
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return new ArrayHistoryManager();
+    }
+
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
+    public static TaskManager getDefaultConcurrent() {
+        return new ConcurrentTaskManager();
     }
 
     public static TaskManager getDefaultFileBacked(File file) {
         return new FileBackedTaskManager(file);
     }
 
+    public static TaskManager getDefaultSharded(File directory) {
+        return new ShardedTaskManager(directory);
+    }
+
+    public static TaskManager getDefaultJdbc(String url) {
+        return new JdbcTaskManager(url);
+    }
+
     public static Gson getGson() {
         return new GsonBuilder()
                 .serializeNulls()
                 .setPrettyPrinting()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
                 .registerTypeAdapter(Duration.class, new DurationAdapter())
+                .registerTypeAdapterFactory(new TaskAdapterFactory())
                 .create();
     }
 }
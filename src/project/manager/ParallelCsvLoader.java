@@ -0,0 +1,129 @@
+package project.manager;
+
+import project.exceptions.ManagerLoadException;
+import project.taskType.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Splits a CSV export into record-aligned chunks and parses them on a fork-join pool.
+// Records are returned in file order; linking subtasks to epics is left to the caller.
+class ParallelCsvLoader {
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private ParallelCsvLoader() {
+    }
+
+    static List<Task> parse(File file, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] boundaries = chunkBoundaries(channel, pool.getParallelism());
+            return pool.invoke(new ParseTask(channel, boundaries, 0, boundaries.length - 1));
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+    }
+
+    // Quoted fields may contain line breaks, so a chunk may only end at a line break outside quotes.
+    // The first chunk starts at the beginning of the file; its parser skips the header if there is one.
+    private static long[] chunkBoundaries(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE,
+                Math.max(MIN_CHUNK_SIZE, size / ((long) parallelism * CHUNKS_PER_THREAD)));
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        boolean inQuotes = false;
+        long nextBoundary = chunkSize;
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes && position + i >= nextBoundary) {
+                    boundaries.add(position + i + 1);
+                    nextBoundary = position + i + 1 + chunkSize;
+                }
+            }
+            position += read;
+        }
+        if (boundaries.getLast() < size) {
+            boundaries.add(size);
+        }
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Never serialized; the channel is only shared between the forked parts of one parse.
+    private static class ParseTask extends RecursiveTask<List<Task>> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] boundaries;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ParseTask(FileChannel channel, long[] boundaries, int fromChunk, int toChunk) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            if (toChunk - fromChunk <= 1) {
+                return parseChunk();
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            ParseTask head = new ParseTask(channel, boundaries, fromChunk, middle);
+            ParseTask tail = new ParseTask(channel, boundaries, middle, toChunk);
+            tail.fork();
+            List<Task> records = head.compute();
+            records.addAll(tail.join());
+            return records;
+        }
+
+        private List<Task> parseChunk() {
+            List<Task> records = new ArrayList<>();
+            if (toChunk == fromChunk) {
+                return records;
+            }
+            long start = boundaries[fromChunk];
+            byte[] chunk = new byte[(int) (boundaries[toChunk] - start)];
+            try {
+                ByteBuffer target = ByteBuffer.wrap(chunk);
+                while (target.hasRemaining()) {
+                    if (channel.read(target, start + target.position()) < 0) {
+                        throw new ManagerLoadException("Файл изменился во время загрузки");
+                    }
+                }
+                CsvReader reader = new CsvReader(chunk, 0, chunk.length);
+                boolean hasRecord = reader.next();
+                if (hasRecord && start == 0 && TaskCsvCodec.isHeader(reader)) {
+                    hasRecord = reader.next();
+                }
+                while (hasRecord) {
+                    records.add(TaskCsvCodec.read(reader, 0));
+                    hasRecord = reader.next();
+                }
+            } catch (IOException e) {
+                throw new ManagerLoadException("Произошла ошибка во время загрузки");
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package project.manager;
+
+import project.exceptions.ManagerLoadException;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// Follows a primary's ReplicationSource and applies the shipped log records the way FileBackedTaskManager
+// replays its own log. Until promoted the replica only serves reads; every change comes from the primary.
+// After promote() it stops following and accepts changes like a plain InMemoryTaskManager.
+// Records are applied on the follower thread under the manager's lock. Every TaskManager method takes the same
+// lock, and reads hand out copies, so callers never hold a record the follower is still changing.
+public class ReplicaTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 1_000;
+    private static final int RECONNECT_DELAY_MILLIS = 500;
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+    // A primary that misses this many heartbeats in a row is treated as gone.
+    private static final int MISSED_HEARTBEATS = 10;
+    private static final System.Logger LOGGER = System.getLogger(ReplicaTaskManager.class.getName());
+
+    private final InetSocketAddress primary;
+    private final CRC32C checksum = new CRC32C();
+    private volatile Thread follower;
+    private volatile Socket socket;
+    private volatile boolean stopped;
+    private volatile boolean promoted;
+    private volatile boolean connected;
+    private volatile long appliedSequence;
+    private volatile long primarySequence;
+    private volatile long lastAppliedTime;
+    // Set by the follower while it applies a batch under the manager's lock, so the regular mutators accept it.
+    private boolean applying;
+
+    public ReplicaTaskManager(InetSocketAddress primary) {
+        this.primary = primary;
+        this.lastAppliedTime = System.currentTimeMillis();
+    }
+
+    // Starts following the primary. A replica that is promoted without being started never connects.
+    public synchronized void start() {
+        if (stopped) {
+            throw new IllegalStateException("Replica of %s is already stopped".formatted(primary));
+        }
+        if (follower != null) {
+            throw new IllegalStateException("Replica of %s is already started".formatted(primary));
+        }
+        follower = Thread.ofPlatform().daemon().name("replica-follower").start(this::follow);
+    }
+
+    public record ReplicationStatus(boolean connected, boolean promoted, long appliedSequence, long primarySequence,
+                                    long lagRecords, long lagMillis) {
+    }
+
+    // Lag in records is how many the primary had shipped, as of its last heartbeat, that are not applied here yet.
+    // Lag in time is zero while the replica is connected and caught up; otherwise it is the age of the newest
+    // primary state fully applied here. Both sides read the same clock when they run on one host.
+    public ReplicationStatus getStatus() {
+        long applied = appliedSequence;
+        long announced = Math.max(primarySequence, applied);
+        boolean caughtUp = connected && applied == announced;
+        long lagMillis = promoted || caughtUp ? 0 : Math.max(0, System.currentTimeMillis() - lastAppliedTime);
+        return new ReplicationStatus(connected, promoted, applied, announced, announced - applied, lagMillis);
+    }
+
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    // Stops following the primary; the follower thread is gone when this returns, so nothing is applied
+    // behind the caller's back afterwards.
+    public void promote() {
+        stop();
+        promoted = true;
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void stop() {
+        stopped = true;
+        closeSocket();
+        Thread thread = follower;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        connected = false;
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return copies(super.getHistory());
+    }
+
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return copies(super.getAllTasks());
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        checkWritable();
+        super.deleteAllTasks();
+    }
+
+    @Override
+    public synchronized Task getTaskById(Integer id) {
+        return copy(super.getTaskById(id));
+    }
+
+    @Override
+    public synchronized void addNewTask(Task task) {
+        checkWritable();
+        super.addNewTask(task);
+    }
+
+    @Override
+    public synchronized void updateTask(Task updatedTask) {
+        checkWritable();
+        super.updateTask(updatedTask);
+    }
+
+    @Override
+    public synchronized void deleteTask(Integer id) {
+        checkWritable();
+        super.deleteTask(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        return copies(super.getAllSubtasks());
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        checkWritable();
+        super.deleteAllSubtasks();
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(Integer id) {
+        return copy(super.getSubtaskById(id));
+    }
+
+    @Override
+    public synchronized void addNewSubtask(Subtask subtask) {
+        checkWritable();
+        super.addNewSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        checkWritable();
+        super.updateSubtask(subtask);
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(Integer id) {
+        checkWritable();
+        super.deleteSubtaskById(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksInEpic(Epic epic) {
+        return copies(super.getSubtasksInEpic(epic));
+    }
+
+    // Only recalculates the status from the subtasks, and the base class calls it while applying records.
+    @Override
+    public synchronized void updateEpicStatus(Epic epic) {
+        super.updateEpicStatus(epic);
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        return copies(super.getAllEpics());
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        checkWritable();
+        super.deleteAllEpics();
+    }
+
+    @Override
+    public synchronized void addNewEpic(Epic epic) {
+        checkWritable();
+        super.addNewEpic(epic);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(Integer id) {
+        return copy(super.getEpicById(id));
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic updatedEpic) {
+        checkWritable();
+        super.updateEpic(updatedEpic);
+    }
+
+    @Override
+    public synchronized void deleteEpicById(Integer id) {
+        checkWritable();
+        super.deleteEpicById(id);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksInEpic(List<Integer> subtasksById) {
+        return copies(super.getSubtasksInEpic(subtasksById));
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return copies(super.getPrioritizedTasks());
+    }
+
+    @Override
+    public synchronized List<Task> bulkLoad(Collection<? extends Task> records) {
+        checkWritable();
+        return super.bulkLoad(records);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> T copy(T task) {
+        return (T) switch (task) {
+            case null -> null;
+            case Epic epic -> new Epic(epic);
+            case Subtask subtask -> new Subtask(subtask);
+            default -> new Task(task);
+        };
+    }
+
+    private static <T extends Task> List<T> copies(List<T> tasks) {
+        List<T> copies = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            copies.add(copy(task));
+        }
+        return copies;
+    }
+
+    private void checkWritable() {
+        if (!promoted && !applying) {
+            throw new IllegalStateException("Replica of %s is read-only until promoted".formatted(primary));
+        }
+    }
+
+    // Reconnects until stopped; every connection starts over from the snapshot the primary sends first.
+    private void follow() {
+        boolean reported = false;
+        while (!stopped) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                if (stopped) {
+                    return;
+                }
+                connection.connect(primary, CONNECT_TIMEOUT_MILLIS);
+                connection.setSoTimeout((int) ReplicationSource.HEARTBEAT_INTERVAL_MILLIS * MISSED_HEARTBEATS);
+                reported = false;
+                receive(new DataInputStream(new BufferedInputStream(connection.getInputStream(),
+                        SOCKET_BUFFER_SIZE)));
+            } catch (ManagerLoadException e) {
+                LOGGER.log(System.Logger.Level.WARNING, e.getMessage(), e);
+            } catch (IOException | RuntimeException e) {
+                if (!stopped && !reported) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Нет связи с основным сервером %s, повторное подключение"
+                            .formatted(primary), e);
+                    reported = true;
+                }
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            pause();
+        }
+    }
+
+    private void receive(DataInputStream in) throws IOException {
+        while (!stopped) {
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            long time = in.readLong();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            switch (type) {
+                case ReplicationSource.SNAPSHOT -> {
+                    List<Task> records = parseSnapshot(payload);
+                    synchronized (this) {
+                        if (stopped) {
+                            return;
+                        }
+                        super.deleteAllTasks();
+                        super.deleteAllEpics();
+                        super.bulkLoad(records);
+                        applied(sequence, time);
+                    }
+                    connected = true;
+                }
+                case ReplicationSource.RECORDS -> {
+                    synchronized (this) {
+                        if (stopped) {
+                            return;
+                        }
+                        applyRecords(payload);
+                        applied(sequence, time);
+                    }
+                }
+                case ReplicationSource.HEARTBEAT -> {
+                    primarySequence = sequence;
+                    if (appliedSequence >= sequence) {
+                        lastAppliedTime = time;
+                    }
+                }
+                default -> throw new EOFException("Unknown replication frame " + type);
+            }
+        }
+    }
+
+    private void applied(long sequence, long time) {
+        appliedSequence = sequence;
+        primarySequence = Math.max(primarySequence, sequence);
+        lastAppliedTime = time;
+    }
+
+    private static List<Task> parseSnapshot(byte[] csv) throws IOException {
+        List<Task> records = new ArrayList<>();
+        CsvReader reader = new CsvReader(csv, 0, csv.length);
+        while (reader.next()) {
+            if (!TaskCsvCodec.isHeader(reader)) {
+                records.add(TaskCsvCodec.read(reader, 0));
+            }
+        }
+        return records;
+    }
+
+    // The checksums of the whole batch are checked before any of it is applied, so a damaged batch leaves the
+    // board untouched. A record that the board refuses stops the batch part way: the records before it stay
+    // applied, the replica reports itself disconnected and the follower starts over from a fresh snapshot.
+    private void applyRecords(byte[] batch) throws IOException {
+        CsvReader reader = new CsvReader(batch, 0, batch.length);
+        while (reader.next()) {
+            checksum.reset();
+            reader.updateChecksum(checksum, 1);
+            if (reader.hexValue(0) != (int) checksum.getValue()) {
+                throw new ManagerLoadException("Повреждённая запись журнала от основного сервера");
+            }
+        }
+        reader = new CsvReader(batch, 0, batch.length);
+        applying = true;
+        try {
+            while (reader.next()) {
+                TaskLogRecords.apply(reader, 1, this);
+            }
+        } catch (RuntimeException e) {
+            connected = false;
+            throw new ManagerLoadException("Запись от основного сервера не применилась, реплика загрузит снимок заново",
+                    e);
+        } finally {
+            applying = false;
+        }
+    }
+
+    private void closeSocket() {
+        Socket connection = socket;
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (IOException e) {
+            // The follower notices the closed socket and exits.
+        }
+    }
+
+    private void pause() {
+        if (stopped) {
+            return;
+        }
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
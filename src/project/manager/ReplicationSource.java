@@ -0,0 +1,212 @@
+package project.manager;
+
+import project.exceptions.ManagerSaveException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Ships the records of a FileBackedTaskManager log to replicas connected over a local socket.
+// A replica first gets a CSV snapshot tagged with the number of records logged so far, then every later batch
+// in log order. A batch is numbered when it is logged but shipped only once it is durable, and a snapshot is not
+// sent before the state it shows is durable, so a replica never holds a change the primary could lose.
+// Each replica has its own sender thread and queue; one that falls too far behind is dropped and starts over
+// from a fresh snapshot when it reconnects.
+public class ReplicationSource implements AutoCloseable {
+    static final byte SNAPSHOT = 1;
+    static final byte RECORDS = 2;
+    static final byte HEARTBEAT = 3;
+    static final long HEARTBEAT_INTERVAL_MILLIS = 200;
+
+    private static final int MAX_QUEUED_FRAMES = 10_000;
+    private static final int SOCKET_BUFFER_SIZE = 64 * 1024;
+    private static final System.Logger LOGGER = System.getLogger(ReplicationSource.class.getName());
+
+    private final ServerSocket serverSocket;
+    private final Object stateLock;
+    private final Supplier<byte[]> snapshot;
+    private final Supplier<CompletableFuture<Void>> durable;
+    private final List<Replica> replicas = new ArrayList<>();
+    private volatile long sequence;
+    private volatile boolean closed;
+
+    // The snapshot is rendered under stateLock, the lock the manager holds while numbering batches,
+    // so no batch falls between a snapshot and the records that follow it. durable tells when everything
+    // logged so far has been written.
+    ReplicationSource(int port, Object stateLock, Supplier<byte[]> snapshot,
+                      Supplier<CompletableFuture<Void>> durable) {
+        try {
+            this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть порт репликации " + port);
+        }
+        this.stateLock = stateLock;
+        this.snapshot = snapshot;
+        this.durable = durable;
+    }
+
+    void start() {
+        Thread.ofPlatform().daemon().name("replication-accept").start(this::acceptReplicas);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Number of records logged since the source was started; the last batches may still be on their way.
+    public long getSequence() {
+        return sequence;
+    }
+
+    public synchronized int getReplicaCount() {
+        return replicas.size();
+    }
+
+    // Called by the manager under stateLock once a batch is in the log; returns the sequence to ship it with.
+    synchronized long reserve(int count) {
+        sequence += count;
+        return sequence;
+    }
+
+    // Called in log order once the batch is durable. Replicas whose snapshot already shows it are skipped.
+    void ship(byte[] records, long batchSequence) {
+        synchronized (this) {
+            Frame frame = new Frame(RECORDS, batchSequence, System.currentTimeMillis(), records);
+            for (Replica replica : List.copyOf(replicas)) {
+                if (replica.snapshotSequence >= batchSequence) {
+                    continue;
+                }
+                if (!replica.queue.offer(frame)) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Реплика %s отстала и отключена".formatted(replica.name));
+                    disconnect(replica);
+                }
+            }
+        }
+    }
+
+    // Drops every replica so it starts over from a fresh snapshot, after the primary's state moved on without
+    // shipping records, as when a failed log write is folded into a new snapshot.
+    synchronized void resync() {
+        for (Replica replica : List.copyOf(replicas)) {
+            disconnect(replica);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing was written through the listening socket.
+        }
+        synchronized (this) {
+            for (Replica replica : List.copyOf(replicas)) {
+                disconnect(replica);
+            }
+        }
+    }
+
+    private void acceptReplicas() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Не удалось принять подключение реплики", e);
+                }
+                continue;
+            }
+            Replica replica = new Replica(socket);
+            synchronized (stateLock) {
+                byte[] state = snapshot.get();
+                replica.ready = durable.get();
+                synchronized (this) {
+                    replica.snapshotSequence = sequence;
+                    replica.queue.add(new Frame(SNAPSHOT, sequence, System.currentTimeMillis(), state));
+                    replicas.add(replica);
+                }
+            }
+            Thread.ofPlatform().daemon().name("replication-" + replica.name).start(() -> send(replica));
+        }
+    }
+
+    // Heartbeats carry the current sequence, which may run ahead of the queue, so a replica can tell how far
+    // behind it is while records are still on their way.
+    private void send(Replica replica) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(replica.socket.getOutputStream(),
+                SOCKET_BUFFER_SIZE))) {
+            replica.ready.get();
+            long nextHeartbeat = 0;
+            while (!replica.socket.isClosed()) {
+                Frame frame = replica.queue.poll(HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (frame != null) {
+                    write(out, frame);
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextHeartbeat) {
+                    write(out, new Frame(HEARTBEAT, sequence, now, new byte[0]));
+                    nextHeartbeat = now + HEARTBEAT_INTERVAL_MILLIS;
+                }
+                if (replica.queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (ExecutionException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Снимок для реплики %s не записан на диск, реплика отключена"
+                    .formatted(replica.name), e.getCause());
+        } catch (IOException | InterruptedException e) {
+            // The replica went away; it resynchronizes from a snapshot when it comes back.
+        } finally {
+            synchronized (this) {
+                disconnect(replica);
+            }
+        }
+    }
+
+    private static void write(DataOutputStream out, Frame frame) throws IOException {
+        out.writeByte(frame.type());
+        out.writeLong(frame.sequence());
+        out.writeLong(frame.time());
+        out.writeInt(frame.payload().length);
+        out.write(frame.payload());
+    }
+
+    // Called with the source's lock held.
+    private void disconnect(Replica replica) {
+        replicas.remove(replica);
+        try {
+            replica.socket.close();
+        } catch (IOException e) {
+            // The connection is dropped either way.
+        }
+    }
+
+    private static final class Replica {
+        private final Socket socket;
+        private final String name;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        private CompletableFuture<Void> ready;
+        private long snapshotSequence;
+
+        private Replica(Socket socket) {
+            this.socket = socket;
+            this.name = socket.getRemoteSocketAddress().toString();
+        }
+    }
+
+    private record Frame(byte type, long sequence, long time, byte[] payload) {
+    }
+}
@@ -0,0 +1,289 @@
+package project.manager;
+
+import project.collections.IntObjectHashMap;
+import project.exceptions.ManagerLoadException;
+import project.exceptions.ManagerSaveException;
+import project.manager.FileBackedTaskManager.FsyncPolicy;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Keeps the board in a directory: a CSV shard per epic with the epic and its subtasks, one for standalone tasks
+// and a manifest naming the epic shards. A change rewrites only the shards it touched. An epic shard is written
+// before the manifest names it and removed after the manifest drops it, so files the manifest does not name
+// are leftovers of an interrupted change and are ignored.
+public class ShardedTaskManager extends InMemoryTaskManager {
+    private static final String MANIFEST = "manifest.csv";
+    private static final String MANIFEST_HEADER = "epic";
+    private static final String TASKS_SHARD = "tasks.csv";
+    private static final String EPIC_SHARD_PREFIX = "epic-";
+    private static final String SHARD_SUFFIX = ".csv";
+    private static final String TEMP_SUFFIX = ".new";
+
+    private final File directory;
+    private final FsyncPolicy fsyncPolicy;
+
+    public ShardedTaskManager(File directory) {
+        this(directory, FsyncPolicy.NEVER);
+    }
+
+    public ShardedTaskManager(File directory, FsyncPolicy fsyncPolicy) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new ManagerSaveException("Не удалось создать каталог " + directory);
+        }
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        super.deleteAllTasks();
+        writeTasksShard();
+    }
+
+    @Override
+    public synchronized void addNewTask(Task task) {
+        super.addNewTask(task);
+        if (task != null) {
+            writeTasksShard();
+        }
+    }
+
+    @Override
+    public synchronized void updateTask(Task task) {
+        super.updateTask(task);
+        writeTasksShard();
+    }
+
+    @Override
+    public synchronized void deleteTask(Integer id) {
+        super.deleteTask(id);
+        writeTasksShard();
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+        getAllEpics().forEach(this::writeEpicShard);
+    }
+
+    @Override
+    public synchronized void addNewSubtask(Subtask subtask) {
+        super.addNewSubtask(subtask);
+        if (subtask != null) {
+            writeEpicShard(subtask.getEpicId());
+        }
+    }
+
+    @Override
+    public synchronized void updateSubtask(Subtask subtask) {
+        super.updateSubtask(subtask);
+        writeEpicShard(subtask.getEpicId());
+    }
+
+    @Override
+    public synchronized void deleteSubtaskById(Integer id) {
+        Task subtask = id != null ? peek(id) : null;
+        super.deleteSubtaskById(id);
+        writeEpicShard(((Subtask) subtask).getEpicId());
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        List<Epic> epics = getAllEpics();
+        super.deleteAllEpics();
+        writeManifest();
+        epics.forEach(epic -> deleteShard(epicShard(epic.getId())));
+    }
+
+    @Override
+    public synchronized void addNewEpic(Epic epic) {
+        super.addNewEpic(epic);
+        if (epic != null) {
+            writeEpicShard(epic);
+            writeManifest();
+        }
+    }
+
+    @Override
+    public synchronized void updateEpic(Epic epic) {
+        super.updateEpic(epic);
+        if (epic != null) {
+            writeEpicShard(epic.getId());
+        }
+    }
+
+    @Override
+    public synchronized void deleteEpicById(Integer id) {
+        super.deleteEpicById(id);
+        writeManifest();
+        deleteShard(epicShard(id));
+    }
+
+    @Override
+    public synchronized List<Task> bulkLoad(Collection<? extends Task> records) {
+        List<Task> conflicts = super.bulkLoad(records);
+        IntObjectHashMap<Epic> changedEpics = new IntObjectHashMap<>();
+        boolean tasksChanged = false;
+        boolean epicsAdded = false;
+        for (Task record : records) {
+            if (record instanceof Epic epic) {
+                changedEpics.put(epic.getId(), epic);
+                epicsAdded = true;
+            } else if (record instanceof Subtask subtask) {
+                changedEpics.put(subtask.getEpicId(), (Epic) peek(subtask.getEpicId()));
+            } else {
+                tasksChanged = true;
+            }
+        }
+        if (tasksChanged) {
+            writeTasksShard();
+        }
+        changedEpics.forEachValue(this::writeEpicShard);
+        if (epicsAdded) {
+            writeManifest();
+        }
+        return conflicts;
+    }
+
+    public static ShardedTaskManager loadFromDirectory(File directory) {
+        return loadFromDirectory(directory, FsyncPolicy.NEVER);
+    }
+
+    // Shards are independent files, so they are parsed in parallel and restored in one bulk load.
+    public static ShardedTaskManager loadFromDirectory(File directory, FsyncPolicy fsyncPolicy) {
+        ShardedTaskManager manager = new ShardedTaskManager(directory, fsyncPolicy);
+        List<String> shards = manager.readManifest();
+        List<Task> records = shards.parallelStream()
+                .flatMap(shard -> manager.readShard(shard).stream())
+                .toList();
+        List<Task> conflicts = manager.restoreAll(records);
+        if (!conflicts.isEmpty()) {
+            System.out.println("Ошибка: задачи пересекаются по времени и не попали в приоритетный список: "
+                    + conflicts.stream().map(Task::getId).toList());
+        }
+        manager.removeLeftovers(shards);
+        return manager;
+    }
+
+    private List<Task> restoreAll(List<Task> records) {
+        return super.bulkLoad(records);
+    }
+
+    private List<String> readManifest() {
+        List<String> shards = new ArrayList<>();
+        shards.add(TASKS_SHARD);
+        File manifest = new File(directory, MANIFEST);
+        if (!manifest.exists()) {
+            return shards;
+        }
+        try (InputStream in = Files.newInputStream(manifest.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            while (reader.next()) {
+                if (!MANIFEST_HEADER.equals(reader.string(0))) {
+                    shards.add(epicShard(reader.intValue(0)));
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+        return shards;
+    }
+
+    private List<Task> readShard(String shard) {
+        List<Task> records = new ArrayList<>();
+        File file = new File(directory, shard);
+        if (!file.exists()) {
+            if (!shard.equals(TASKS_SHARD)) {
+                throw new ManagerLoadException("Не найден файл эпика " + shard);
+            }
+            return records;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            CsvReader reader = new CsvReader(in);
+            while (reader.next()) {
+                if (!TaskCsvCodec.isHeader(reader)) {
+                    records.add(TaskCsvCodec.read(reader, 0));
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Произошла ошибка во время загрузки");
+        }
+        return records;
+    }
+
+    private void removeLeftovers(List<String> shards) {
+        Set<String> named = new HashSet<>(shards);
+        File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX)
+                || name.startsWith(EPIC_SHARD_PREFIX) && name.endsWith(SHARD_SUFFIX) && !named.contains(name));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                leftover.delete();
+            }
+        }
+    }
+
+    private void writeTasksShard() {
+        writeShard(TASKS_SHARD, getAllTasks());
+    }
+
+    private void writeEpicShard(Integer epicId) {
+        writeEpicShard((Epic) peek(epicId));
+    }
+
+    private void writeEpicShard(Epic epic) {
+        List<Task> records = new ArrayList<>();
+        records.add(epic);
+        records.addAll(getSubtasksInEpic(epic));
+        writeShard(epicShard(epic.getId()), records);
+    }
+
+    private void writeManifest() {
+        StringBuilder manifest = new StringBuilder(MANIFEST_HEADER).append('\n');
+        for (Epic epic : getAllEpics()) {
+            manifest.append(epic.getId().intValue()).append('\n');
+        }
+        install(MANIFEST, manifest.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeShard(String shard, List<? extends Task> records) {
+        StringBuilder content = new StringBuilder(TaskCsvCodec.HEADER).append('\n');
+        for (Task record : records) {
+            TaskCsvCodec.write(record, content);
+            content.append('\n');
+        }
+        install(shard, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void install(String name, byte[] content) {
+        try {
+            AtomicFiles.write(new File(directory, name + TEMP_SUFFIX), new File(directory, name), content,
+                    fsyncPolicy);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка во время сохранения");
+        }
+    }
+
+    private void deleteShard(String name) {
+        try {
+            Files.deleteIfExists(new File(directory, name).toPath());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Произошла ошибка во время удаления файла эпика " + name);
+        }
+    }
+
+    private static String epicShard(int epicId) {
+        return EPIC_SHARD_PREFIX + epicId + SHARD_SUFFIX;
+    }
+}
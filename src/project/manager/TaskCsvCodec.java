@@ -0,0 +1,149 @@
+package project.manager;
+
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Row layout: id,type,name,status,description,start_time,duration,epic.
+// An empty unquoted field is null, "" is an empty string; fields with commas, quotes or line breaks are quoted.
+class TaskCsvCodec {
+    static final String HEADER = "id,type,name,status,description,start_time,duration,epic";
+
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private TaskCsvCodec() {
+    }
+
+    static boolean isHeader(CsvReader reader) {
+        return "id".equals(reader.string(0));
+    }
+
+    static Task read(CsvReader reader, int firstField) {
+        int id = reader.intValue(firstField);
+        TaskType taskType = reader.enumValue(firstField + 1, TASK_TYPES);
+        String name = reader.string(firstField + 2);
+        Status status = reader.enumValue(firstField + 3, STATUSES);
+        String description = reader.string(firstField + 4);
+        LocalDateTime startTime = reader.fieldCount() > firstField + 5 ? reader.dateTime(firstField + 5) : null;
+        Duration duration = reader.fieldCount() > firstField + 6 ? reader.duration(firstField + 6) : null;
+
+        Task task;
+        if (taskType == TaskType.TASK) {
+            task = new Task(name, description, status, startTime, duration);
+        } else if (taskType == TaskType.EPIC) {
+            task = new Epic(name, description, status, startTime, duration);
+        } else {
+            task = new Subtask(name, description, status, reader.intValue(firstField + 7), startTime, duration);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    static void write(Task task, StringBuilder out) {
+        out.append(task.getId().intValue()).append(',').append(task.getType().name()).append(',');
+        appendString(task.getName(), out);
+        out.append(',').append(task.getStatus()).append(',');
+        appendString(task.getDescription(), out);
+        out.append(',');
+        appendDateTime(task.getStartTime(), out);
+        out.append(',');
+        appendDuration(task.getDuration(), out);
+        out.append(',');
+        if (task.getType() == TaskType.SUBTASK) {
+            out.append(((Subtask) task).getEpicId().intValue());
+        }
+    }
+
+    private static void appendString(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = value.isEmpty();
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendDateTime(LocalDateTime time, StringBuilder out) {
+        if (time == null) {
+            return;
+        }
+        if (time.getYear() < 0 || time.getYear() > 9999) {
+            out.append(time.withNano(0));
+            return;
+        }
+        appendPadded(time.getYear(), 4, out);
+        out.append('-');
+        appendPadded(time.getMonthValue(), 2, out);
+        out.append('-');
+        appendPadded(time.getDayOfMonth(), 2, out);
+        out.append('T');
+        appendPadded(time.getHour(), 2, out);
+        out.append(':');
+        appendPadded(time.getMinute(), 2, out);
+        out.append(':');
+        appendPadded(time.getSecond(), 2, out);
+    }
+
+    // Same text as Duration.toString, without the intermediate string for the common non-negative case.
+    private static void appendDuration(Duration duration, StringBuilder out) {
+        if (duration == null) {
+            return;
+        }
+        if (duration.isNegative()) {
+            out.append(duration);
+            return;
+        }
+        long seconds = duration.getSeconds();
+        int nanos = duration.getNano();
+        long hours = seconds / 3600;
+        int minutes = (int) (seconds % 3600 / 60);
+        int secs = (int) (seconds % 60);
+        out.append("PT");
+        if (hours != 0) {
+            out.append(hours).append('H');
+        }
+        if (minutes != 0) {
+            out.append(minutes).append('M');
+        }
+        if (secs == 0 && nanos == 0 && (hours != 0 || minutes != 0)) {
+            return;
+        }
+        out.append(secs);
+        if (nanos > 0) {
+            int position = out.length();
+            out.append(nanos + 1_000_000_000);
+            while (out.charAt(out.length() - 1) == '0') {
+                out.setLength(out.length() - 1);
+            }
+            out.setCharAt(position, '.');
+        }
+        out.append('S');
+    }
+
+    private static void appendPadded(int value, int width, StringBuilder out) {
+        for (int divisor = width == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package project.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import project.collections.IntIntHashMap;
+import project.exceptions.TaskIdConflictException;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Boards as JSON Lines: one task object per line, tasks first, then epics, then their subtasks. Field names follow
+// the Gson form of the task classes, with "type" added to tell them apart and null fields left out.
+// Records are written and read one at a time, and imports reach bulkLoad in batches.
+public final class TaskJsonLines {
+    private static final int BATCH_SIZE = 10_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Gson GSON = Managers.getGson();
+
+    private TaskJsonLines() {
+    }
+
+    // Flushes but does not close the stream. Each type is read from the manager with forEach, so a manager backed by
+    // storage never holds the whole board in memory for an export.
+    public static void write(TaskManager taskManager, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            for (TaskType taskType : TaskType.values()) {
+                taskManager.forEach(taskType, task -> {
+                    try {
+                        writeRecord(task, writer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    // Returns the records bulkLoad left out of the prioritized list. Records keep their ids, so an id that the
+    // manager already holds, or that comes twice in the stream, stops the import with TaskIdConflictException.
+    // Like a malformed line, it leaves the batches before it loaded.
+    public static List<Task> read(InputStream in, TaskManager taskManager) throws IOException {
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                BUFFER_SIZE));
+        reader.setStrictness(Strictness.LENIENT);
+        IntIntHashMap usedIds = new IntIntHashMap();
+        for (TaskType taskType : TaskType.values()) {
+            taskManager.forEach(taskType, task -> usedIds.put(task.getId(), taskType.ordinal()));
+        }
+        List<Task> batch = new ArrayList<>(BATCH_SIZE);
+        List<Task> conflicts = new ArrayList<>();
+        while (reader.peek() != JsonToken.END_DOCUMENT) {
+            Task task = readRecord(reader);
+            if (task.getId() != null && usedIds.put(task.getId(), task.getType().ordinal()) != IntIntHashMap.NO_VALUE) {
+                throw new TaskIdConflictException("Id %s is already taken".formatted(task.getId()));
+            }
+            batch.add(task);
+            if (batch.size() == BATCH_SIZE) {
+                conflicts.addAll(taskManager.bulkLoad(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            conflicts.addAll(taskManager.bulkLoad(batch));
+        }
+        return conflicts;
+    }
+
+    private static void writeRecord(Task task, Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.setSerializeNulls(false);
+        json.beginObject();
+        json.name("type").value(task.getType().name());
+        json.name("id").value(task.getId());
+        json.name("name").value(task.getName());
+        json.name("status").value(task.getStatus() != null ? task.getStatus().name() : null);
+        json.name("description").value(task.getDescription());
+        if (task.getStartTime() != null) {
+            json.name("startTime");
+            GSON.toJson(task.getStartTime(), LocalDateTime.class, json);
+        }
+        if (task.getDuration() != null) {
+            json.name("duration");
+            GSON.toJson(task.getDuration(), Duration.class, json);
+        }
+        if (task instanceof Subtask subtask) {
+            json.name("epicId").value(subtask.getEpicId());
+        }
+        json.endObject();
+        writer.write('\n');
+    }
+
+    private static Task readRecord(JsonReader reader) throws IOException {
+        TaskType type = null;
+        Integer id = null;
+        String name = null;
+        Status status = null;
+        String description = null;
+        LocalDateTime startTime = null;
+        Duration duration = null;
+        Integer epicId = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "type" -> type = TaskType.valueOf(reader.nextString());
+                case "id" -> id = reader.nextInt();
+                case "name" -> name = reader.nextString();
+                case "status" -> status = Status.valueOf(reader.nextString());
+                case "description" -> description = reader.nextString();
+                case "startTime" -> startTime = GSON.fromJson(reader, LocalDateTime.class);
+                case "duration" -> duration = GSON.fromJson(reader, Duration.class);
+                case "epicId" -> epicId = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (type == null) {
+            throw new JsonSyntaxException("Не указан тип записи");
+        }
+        Task task = switch (type) {
+            case TASK -> new Task(name, description, status, startTime, duration);
+            case EPIC -> new Epic(name, description, status, startTime, duration);
+            case SUBTASK -> new Subtask(name, description, status, epicId, startTime, duration);
+        };
+        task.setId(id);
+        return task;
+    }
+}
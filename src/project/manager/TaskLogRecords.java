@@ -0,0 +1,51 @@
+package project.manager;
+
+import project.manager.FileBackedTaskManager.LogOperation;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+// Record layout from the operation field on: ADD and UPDATE carry a TaskCsvCodec row, DELETE a type and an id,
+// DELETE_ALL a type. Checksummed records have the checksum in front, so callers say where the operation is.
+class TaskLogRecords {
+    private TaskLogRecords() {
+    }
+
+    static void apply(CsvReader record, int first, TaskManager target) {
+        LogOperation operation = record.enumValue(first, LogOperation.values());
+        switch (operation) {
+            case ADD -> {
+                Task task = TaskCsvCodec.read(record, first + 1);
+                switch (task.getType()) {
+                    case TASK -> target.addNewTask(task);
+                    case EPIC -> target.addNewEpic((Epic) task);
+                    case SUBTASK -> target.addNewSubtask((Subtask) task);
+                }
+            }
+            case UPDATE -> {
+                Task task = TaskCsvCodec.read(record, first + 1);
+                switch (task.getType()) {
+                    case TASK -> target.updateTask(task);
+                    case EPIC -> target.updateEpic((Epic) task);
+                    case SUBTASK -> target.updateSubtask((Subtask) task);
+                }
+            }
+            case DELETE -> {
+                Integer id = record.intValue(first + 2);
+                switch (record.enumValue(first + 1, TaskType.values())) {
+                    case TASK -> target.deleteTask(id);
+                    case EPIC -> target.deleteEpicById(id);
+                    case SUBTASK -> target.deleteSubtaskById(id);
+                }
+            }
+            case DELETE_ALL -> {
+                switch (record.enumValue(first + 1, TaskType.values())) {
+                    case TASK -> target.deleteAllTasks();
+                    case EPIC -> target.deleteAllEpics();
+                    case SUBTASK -> target.deleteAllSubtasks();
+                }
+            }
+        }
+    }
+}
@@ -3,8 +3,11 @@ package project.manager;
 import project.taskType.Epic;
 import project.taskType.Subtask;
 import project.taskType.Task;
+import project.taskType.TaskType;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskManager {
 
@@ -53,4 +56,18 @@ public interface TaskManager {
     List<Subtask> getSubtasksInEpic(List<Integer> subtasksById);
 
     List<Task> getPrioritizedTasks();
+
+    // Adds records that may already carry ids, epics before their subtasks. Returns the timed records that were
+    // left out of the prioritized list because they intersect another task.
+    List<Task> bulkLoad(Collection<? extends Task> records);
+
+    // Hands every record of one type to action without recording views. Managers backed by storage override it
+    // to read the records a page at a time instead of all at once.
+    default void forEach(TaskType taskType, Consumer<? super Task> action) {
+        switch (taskType) {
+            case TASK -> getAllTasks().forEach(action);
+            case EPIC -> getAllEpics().forEach(action);
+            case SUBTASK -> getAllSubtasks().forEach(action);
+        }
+    }
 }
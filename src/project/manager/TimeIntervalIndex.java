@@ -0,0 +1,96 @@
+package project.manager;
+
+import project.collections.IntObjectHashMap;
+import project.taskType.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+public class TimeIntervalIndex {
+    private final NavigableMap<LocalDateTime, Slot> slots = new TreeMap<>();
+    private final IntObjectHashMap<LocalDateTime> startTimesById = new IntObjectHashMap<>();
+
+    public boolean add(Task task) {
+        LocalDateTime startTime = task.getStartTime();
+        LocalDateTime endTime = task.getEndTime();
+        if (startTime == null || endTime == null) {
+            return false;
+        }
+        if (hasIntersections(startTime, endTime, task.getId())) {
+            return false;
+        }
+        remove(task.getId());
+        slots.put(startTime, new Slot(task, endTime));
+        startTimesById.put(task.getId(), startTime);
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return startTimesById.get(id) != null;
+    }
+
+    // Returns the tasks that were not added because they intersect another task. Conflicts are settled in id
+    // order, the order the tasks were created in, so a reloaded board keeps the tasks the live one had.
+    public List<Task> addAll(List<Task> newTasks) {
+        List<Task> orderedTasks = new ArrayList<>(newTasks);
+        orderedTasks.sort(Comparator.comparing(Task::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+        List<Task> rejectedTasks = new ArrayList<>();
+        for (Task task : orderedTasks) {
+            if (task.getStartTime() != null && task.getEndTime() != null && !add(task)) {
+                rejectedTasks.add(task);
+            }
+        }
+        return rejectedTasks;
+    }
+
+    public void remove(int id) {
+        LocalDateTime startTime = startTimesById.remove(id);
+        if (startTime != null) {
+            slots.remove(startTime);
+        }
+    }
+
+    public void clear() {
+        slots.clear();
+        startTimesById.clear();
+    }
+
+    public boolean hasIntersections(Task task) {
+        return hasIntersections(task.getStartTime(), task.getEndTime(), task.getId());
+    }
+
+    public List<Task> getTasks() {
+        return slots.values().stream().map(Slot::task).toList();
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    // Stored slots never overlap each other, so their end times grow together with the start times.
+    // The only slot that can intersect [startTime, endTime) is the latest one starting before endTime.
+    // Slots are keyed by start time, so another task starting at the same moment is a clash even when one of
+    // the two takes no time.
+    private boolean hasIntersections(LocalDateTime startTime, LocalDateTime endTime, Integer ignoredId) {
+        if (startTime == null || endTime == null) {
+            return false;
+        }
+        Slot sameStartSlot = slots.get(startTime);
+        if (sameStartSlot != null && !sameStartSlot.task().getId().equals(ignoredId)) {
+            return true;
+        }
+        Map.Entry<LocalDateTime, Slot> candidate = slots.lowerEntry(endTime);
+        if (candidate != null && ignoredId != null && ignoredId.equals(candidate.getValue().task().getId())) {
+            candidate = slots.lowerEntry(candidate.getKey());
+        }
+        return candidate != null && candidate.getValue().endTime().isAfter(startTime);
+    }
+
+    private record Slot(Task task, LocalDateTime endTime) {
+    }
+}
@@ -0,0 +1,44 @@
+package project.manager.adapters;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import project.taskType.Task;
+
+import java.io.IOException;
+
+// Tasks are written field by field, except that a description kept on disk is read through its loader
+// instead of going out as null.
+public class TaskAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (!Task.class.isAssignableFrom(type.getRawType())) {
+            return null;
+        }
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+        return new TypeAdapter<>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (value == null || ((Task) value).getDescriptionLoader() == null) {
+                    delegate.write(out, value);
+                    return;
+                }
+                JsonObject json = delegate.toJsonTree(value).getAsJsonObject();
+                json.addProperty("description", ((Task) value).getDescription());
+                elementAdapter.write(out, json);
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                return delegate.read(in);
+            }
+        };
+    }
+}
@@ -72,6 +72,20 @@ public abstract class BaseHttpHandler implements HttpHandler {
         }
     }
 
+    protected void sendConflict(HttpExchange exchange) {
+        try (exchange) {
+            String text = "Задача с таким id уже существует";
+            byte[] resp = text.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(409, resp.length);
+            exchange.getResponseBody().write(resp);
+        } catch (IOException e) {
+            handleError(exchange, "Произошла ошибка при обработке запроса");
+        } finally {
+            exchange.close();
+        }
+    }
+
     protected void sendInternalServerError(HttpExchange exchange) {
         try (exchange) {
             String text = "Произошла ошибка при обработке запроса";
@@ -162,6 +176,18 @@ public abstract class BaseHttpHandler implements HttpHandler {
                         } else {
                             return Endpoint.UNKNOWN;
                         }
+                    case "export":
+                        if (splitStrings.length == 2) {
+                            return Endpoint.GET_EXPORT;
+                        } else {
+                            return Endpoint.UNKNOWN;
+                        }
+                    case "replication":
+                        if (splitStrings.length == 2) {
+                            return Endpoint.GET_REPLICATION_STATUS;
+                        } else {
+                            return Endpoint.UNKNOWN;
+                        }
                     default:
                         return Endpoint.UNKNOWN;
                 }
@@ -171,6 +197,10 @@ public abstract class BaseHttpHandler implements HttpHandler {
                     case "tasks" -> Endpoint.POST_ADD_OR_UPDATE_TASK;
                     case "subtasks" -> Endpoint.POST_ADD_OR_UPDATE_SUBTASK;
                     case "epics" -> Endpoint.POST_ADD_OR_UPDATE_EPIC;
+                    case "import" -> splitStrings.length == 2 ? Endpoint.POST_IMPORT : Endpoint.UNKNOWN;
+                    case "replication" -> splitStrings.length == 3 && "promote".equals(splitStrings[2])
+                            ? Endpoint.POST_PROMOTE_REPLICA
+                            : Endpoint.UNKNOWN;
                     default -> Endpoint.UNKNOWN;
                 };
             }
@@ -16,5 +16,9 @@ public enum Endpoint {
     DELETE_EPIC,
     GET_HISTORY,
     GET_PRIORITIZED_TASKS,
+    GET_EXPORT,
+    POST_IMPORT,
+    GET_REPLICATION_STATUS,
+    POST_PROMOTE_REPLICA,
     UNKNOWN
 }
@@ -0,0 +1,66 @@
+package project.manager.handlers;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import project.exceptions.TaskIdConflictException;
+import project.manager.TaskJsonLines;
+import project.manager.TaskManager;
+import project.taskType.Task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public class JsonLinesHandler extends BaseHttpHandler {
+    private static final System.Logger LOGGER = System.getLogger(JsonLinesHandler.class.getName());
+
+    public JsonLinesHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String requestMethod = exchange.getRequestMethod();
+            String requestPath = exchange.getRequestURI().getPath();
+            Endpoint endpoint = getEndpoint(requestPath, requestMethod);
+
+            switch (endpoint) {
+                case GET_EXPORT -> handleExport(exchange);
+                case POST_IMPORT -> handleImport(exchange);
+                default -> sendNotFound(exchange);
+            }
+        } catch (Exception e) {
+            sendInternalServerError(exchange);
+        }
+    }
+
+    // A zero length makes the server send the body chunked, so records go out as they are written.
+    private void handleExport(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson;charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            TaskJsonLines.write(taskManager, exchange.getResponseBody());
+        } catch (IOException | RuntimeException e) {
+            // The status is already sent; closing mid-stream leaves the client with an unterminated body.
+            LOGGER.log(System.Logger.Level.WARNING, "Выгрузка задач прервана", e);
+        }
+    }
+
+    // Records are read from the request body as it arrives and added in batches. The response lists the ids
+    // of timed records left out of the prioritized list; an id that is already taken gets 409.
+    private void handleImport(HttpExchange exchange) throws IOException {
+        List<Task> conflicts;
+        try (InputStream body = exchange.getRequestBody()) {
+            conflicts = TaskJsonLines.read(body, taskManager);
+        } catch (TaskIdConflictException e) {
+            sendConflict(exchange);
+            return;
+        } catch (JsonParseException | MalformedJsonException | IllegalStateException | IllegalArgumentException e) {
+            sendBadRequest(exchange);
+            return;
+        }
+        sendCreated(exchange, gson.toJson(conflicts.stream().map(Task::getId).toList()));
+    }
+}
@@ -0,0 +1,37 @@
+package project.manager.handlers;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import project.manager.ReplicaTaskManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Turns away changes sent to a replica before they reach a handler; they belong on the primary
+// until the replica is promoted.
+public class ReadOnlyReplicaFilter extends Filter {
+    private final ReplicaTaskManager replica;
+
+    public ReadOnlyReplicaFilter(ReplicaTaskManager replica) {
+        this.replica = replica;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        if ("GET".equalsIgnoreCase(exchange.getRequestMethod()) || replica.isPromoted()) {
+            chain.doFilter(exchange);
+            return;
+        }
+        try (exchange) {
+            byte[] resp = "Реплика принимает только запросы на чтение".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(405, resp.length);
+            exchange.getResponseBody().write(resp);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Rejects changes while the replica follows a primary";
+    }
+}
@@ -0,0 +1,59 @@
+package project.manager.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import project.manager.FileBackedTaskManager;
+import project.manager.ReplicaTaskManager;
+import project.manager.ReplicationSource;
+import project.manager.TaskManager;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ReplicationHandler extends BaseHttpHandler {
+    public ReplicationHandler(TaskManager taskManager) {
+        super(taskManager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String requestMethod = exchange.getRequestMethod();
+            String requestPath = exchange.getRequestURI().getPath();
+            Endpoint endpoint = getEndpoint(requestPath, requestMethod);
+
+            switch (endpoint) {
+                case GET_REPLICATION_STATUS -> handleGetStatus(exchange);
+                case POST_PROMOTE_REPLICA -> handlePromote(exchange);
+                default -> sendNotFound(exchange);
+            }
+        } catch (Exception e) {
+            sendInternalServerError(exchange);
+        }
+    }
+
+    // A replica reports how far behind the primary it is; a primary reports how much it has shipped.
+    private void handleGetStatus(HttpExchange exchange) {
+        if (taskManager instanceof ReplicaTaskManager replica) {
+            sendText(exchange, gson.toJson(replica.getStatus()));
+        } else if (taskManager instanceof FileBackedTaskManager fileBacked
+                && fileBacked.getReplicationSource() != null) {
+            ReplicationSource source = fileBacked.getReplicationSource();
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("sequence", source.getSequence());
+            status.put("replicas", source.getReplicaCount());
+            sendText(exchange, gson.toJson(status));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    private void handlePromote(HttpExchange exchange) {
+        if (taskManager instanceof ReplicaTaskManager replica) {
+            replica.promote();
+            sendText(exchange, gson.toJson(replica.getStatus()));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package project.taskType;
+
+// Supplies descriptions that are kept outside the task objects, for example in the file the board was loaded from.
+public interface DescriptionLoader {
+    String load(Integer taskId);
+}
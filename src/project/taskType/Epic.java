@@ -1,18 +1,28 @@
 package project.taskType;
 
+import project.collections.IntArrayList;
 import project.taskStatus.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 public class Epic extends Task {
 
-    private List<Integer> subtasksById = new ArrayList<>();
+    private List<Integer> subtasksById = new IntArrayList();
 
     private LocalDateTime endTime;
 
+    private transient int newSubtasksCount;
+    private transient int inProgressSubtasksCount;
+    private transient int doneSubtasksCount;
+
+    private transient NavigableMap<LocalDateTime, Integer> subtaskStartTimes;
+    private transient NavigableMap<LocalDateTime, Integer> subtaskEndTimes;
+    private transient Duration subtasksDuration;
+
     public Epic(String name, String description, Status status) {
         super(name, description, status);
     }
@@ -21,6 +31,17 @@ public class Epic extends Task {
         super(name, description, status, startTime, duration);
     }
 
+    // The copy gets its own list of subtask ids and the status counts, but not the time tracking,
+    // so it only serves reads and updates of the epic's own fields.
+    public Epic(Epic epic) {
+        super(epic);
+        this.subtasksById.addAll(epic.subtasksById);
+        this.endTime = epic.endTime;
+        this.newSubtasksCount = epic.newSubtasksCount;
+        this.inProgressSubtasksCount = epic.inProgressSubtasksCount;
+        this.doneSubtasksCount = epic.doneSubtasksCount;
+    }
+
     public List<Integer> getSubtasks() {
         return subtasksById;
     }
@@ -30,7 +51,9 @@ public class Epic extends Task {
     }
 
     public void addSubtask(Integer subtaskId) {
-        subtasksById.add(subtaskId);
+        if (subtaskId != null) {
+            subtasksById.add(subtaskId);
+        }
     }
 
     public void deleteSubtask(Integer subtaskId) {
@@ -39,6 +62,96 @@ public class Epic extends Task {
 
     public void deleteAllSubtasks() {
         subtasksById.clear();
+        newSubtasksCount = 0;
+        inProgressSubtasksCount = 0;
+        doneSubtasksCount = 0;
+        subtaskStartTimes = null;
+        subtaskEndTimes = null;
+        subtasksDuration = null;
+        updateTime();
+    }
+
+    public void addSubtaskStatus(Status status) {
+        changeSubtaskStatusCount(status, 1);
+    }
+
+    public void removeSubtaskStatus(Status status) {
+        changeSubtaskStatusCount(status, -1);
+    }
+
+    public Status calculateStatus() {
+        int subtasksCount = newSubtasksCount + inProgressSubtasksCount + doneSubtasksCount;
+        if (newSubtasksCount == subtasksCount) {
+            return Status.NEW;
+        } else if (doneSubtasksCount == subtasksCount) {
+            return Status.DONE;
+        } else {
+            return Status.IN_PROGRESS;
+        }
+    }
+
+    public void addSubtaskTime(LocalDateTime startTime, Duration duration) {
+        changeSubtaskTime(startTime, duration, 1);
+    }
+
+    public void removeSubtaskTime(LocalDateTime startTime, Duration duration) {
+        changeSubtaskTime(startTime, duration, -1);
+    }
+
+    private void changeSubtaskTime(LocalDateTime startTime, Duration duration, int delta) {
+        boolean tracked = subtaskStartTimes != null;
+        if (!tracked) {
+            subtaskStartTimes = new TreeMap<>();
+            subtaskEndTimes = new TreeMap<>();
+            subtasksDuration = Duration.ZERO;
+        }
+        if (duration != null) {
+            subtasksDuration = delta > 0 ? subtasksDuration.plus(duration) : subtasksDuration.minus(duration);
+        }
+        LocalDateTime endTime = startTime != null && duration != null ? startTime.plus(duration) : null;
+        if (startTime != null) {
+            changeTimeCount(subtaskStartTimes, startTime, delta);
+            if (endTime != null) {
+                changeTimeCount(subtaskEndTimes, endTime, delta);
+            }
+        }
+        if (tracked && delta > 0) {
+            extendTime(startTime, endTime);
+        } else {
+            updateTime();
+        }
+    }
+
+    private void extendTime(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime != null && (getStartTime() == null || startTime.isBefore(getStartTime()))) {
+            setStartTime(startTime);
+        }
+        if (endTime != null && (getEndTime() == null || endTime.isAfter(getEndTime()))) {
+            setEndTime(endTime);
+        }
+        setDuration(subtasksDuration);
+    }
+
+    private void changeTimeCount(NavigableMap<LocalDateTime, Integer> times, LocalDateTime time, int delta) {
+        times.merge(time, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    private void updateTime() {
+        boolean hasTimes = subtaskStartTimes != null;
+        setStartTime(hasTimes && !subtaskStartTimes.isEmpty() ? subtaskStartTimes.firstKey() : null);
+        setEndTime(hasTimes && !subtaskEndTimes.isEmpty() ? subtaskEndTimes.lastKey() : null);
+        setDuration(hasTimes ? subtasksDuration : Duration.ZERO);
+    }
+
+    private void changeSubtaskStatusCount(Status status, int delta) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case NEW -> newSubtasksCount += delta;
+            case IN_PROGRESS -> inProgressSubtasksCount += delta;
+            case DONE -> doneSubtasksCount += delta;
+        }
     }
 
     @Override
@@ -58,7 +171,7 @@ public class Epic extends Task {
     @Override
     public String toString() {
         return "Epic { name = " + getName() +
-                ", description = " + getDescription() +
+                ", description = " + descriptionForDisplay() +
                 ", status = " + getStatus() +
                 ", id = " + getId() +
                 ", subtaskById = " + getSubtasks() + " }";
@@ -20,6 +20,11 @@ public class Subtask extends Task {
         this.epicId = epicId;
     }
 
+    public Subtask(Subtask subtask) {
+        super(subtask);
+        this.epicId = subtask.epicId;
+    }
+
     public Integer getEpicId() {
         return epicId;
     }
@@ -32,7 +37,7 @@ public class Subtask extends Task {
     @Override
     public String toString() {
         return "Subtask { name = " + getName() +
-                ", description = " + getDescription() +
+                ", description = " + descriptionForDisplay() +
                 ", status = " + getStatus() +
                 ", epicId = " + getEpicId() + " }";
     }
@@ -13,6 +13,7 @@ public class Task {
     private String description;
     private LocalDateTime startTime;
     private Duration duration;
+    private transient DescriptionLoader descriptionLoader;
 
     public Task(String name, String description, Status status) {
         this.name = name;
@@ -28,6 +29,17 @@ public class Task {
         this.duration = duration;
     }
 
+    // Copies the fields as they are, so a lazily loaded description stays lazy in the copy.
+    public Task(Task task) {
+        this.name = task.name;
+        this.id = task.id;
+        this.status = task.status;
+        this.description = task.description;
+        this.startTime = task.startTime;
+        this.duration = task.duration;
+        this.descriptionLoader = task.descriptionLoader;
+    }
+
     public String getName() {
         return name;
     }
@@ -53,11 +65,23 @@ public class Task {
     }
 
     public String getDescription() {
-        return description;
+        DescriptionLoader loader = descriptionLoader;
+        return loader != null ? loader.load(id) : description;
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionLoader = null;
+    }
+
+    public DescriptionLoader getDescriptionLoader() {
+        return descriptionLoader;
+    }
+
+    // The description is dropped from the task and read through the loader until it is set again.
+    public void setDescriptionLoader(DescriptionLoader descriptionLoader) {
+        this.descriptionLoader = descriptionLoader;
+        this.description = null;
     }
 
     public LocalDateTime getStartTime() {
@@ -90,18 +114,19 @@ public class Task {
     @Override
     public String toString() {
         return "Task { name = " + name +
-                ", description = " + description +
+                ", description = " + descriptionForDisplay() +
                 ", status = " + status +
                 ", id = " + id + " }";
     }
 
+    // A description kept on disk is compared by its value, read through the loader, which caches recent reads.
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
         if (object == null || object.getClass() != getClass()) return false;
         Task task = (Task) object;
         return Objects.equals(name, task.name) &&
-                Objects.equals(description, task.description) &&
+                Objects.equals(getDescription(), task.getDescription()) &&
                 Objects.equals(status, task.status) &&
                 Objects.equals(id, task.id);
     }
@@ -114,6 +139,7 @@ public class Task {
         }
         hash *= 31;
 
+        String description = getDescription();
         if (description != null) {
             hash += description.hashCode();
         }
@@ -129,4 +155,8 @@ public class Task {
         }
         return hash;
     }
+
+    protected String descriptionForDisplay() {
+        return descriptionLoader != null ? "<not loaded>" : description;
+    }
 }
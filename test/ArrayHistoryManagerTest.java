@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.manager.ArrayHistoryManager;
+import project.manager.HistoryManager;
+import project.manager.InMemoryHistoryManager;
+import project.taskType.Task;
+
+import java.util.List;
+import java.util.Random;
+
+public class ArrayHistoryManagerTest extends HistoryManagerTest<HistoryManager> {
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new ArrayHistoryManager();
+    }
+
+    @Test
+    void shouldKeepSameOrderAsLinkedHistory() {
+        HistoryManager arrayHistory = new ArrayHistoryManager();
+        HistoryManager linkedHistory = new InMemoryHistoryManager();
+        List<Task> tasks = createTasks(200);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            Task task = tasks.get(random.nextInt(tasks.size()));
+            if (random.nextInt(4) == 0) {
+                boolean viewed = linkedHistory.getHistory().contains(task);
+                if (viewed) {
+                    arrayHistory.remove(task.getId());
+                    linkedHistory.remove(task.getId());
+                }
+            } else {
+                arrayHistory.add(task);
+                linkedHistory.add(task);
+            }
+        }
+
+        Assertions.assertEquals(linkedHistory.getHistory(), arrayHistory.getHistory());
+    }
+
+    @Test
+    void shouldReuseSlotsWhenCapacityReached() {
+        HistoryManager boundedHistory = new ArrayHistoryManager(3);
+        List<Task> tasks = createTasks(5);
+
+        tasks.forEach(boundedHistory::add);
+        boundedHistory.add(tasks.get(2));
+
+        Assertions.assertEquals(List.of(tasks.get(3), tasks.get(4), tasks.get(2)), boundedHistory.getHistory());
+    }
+
+    @Test
+    void shouldReturnReadOnlyHistory() {
+        List<Task> tasks = createTasks(1);
+        history.add(tasks.get(0));
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> history.getHistory().set(0, null));
+    }
+}
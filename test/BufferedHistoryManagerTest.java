@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.manager.ArrayHistoryManager;
+import project.manager.BufferedHistoryManager;
+import project.manager.HistoryManager;
+import project.manager.InMemoryHistoryManager;
+import project.taskType.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BufferedHistoryManagerTest extends HistoryManagerTest<HistoryManager> {
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new BufferedHistoryManager(new ArrayHistoryManager());
+    }
+
+    @Test
+    void shouldKeepSameOrderOverLinkedHistory() {
+        HistoryManager bufferedHistory = new BufferedHistoryManager(new InMemoryHistoryManager());
+        HistoryManager linkedHistory = new InMemoryHistoryManager();
+        List<Task> tasks = createTasks(200);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20_000; i++) {
+            Task task = tasks.get(random.nextInt(tasks.size()));
+            if (random.nextInt(4) == 0) {
+                if (linkedHistory.getHistory().contains(task)) {
+                    bufferedHistory.remove(task.getId());
+                    linkedHistory.remove(task.getId());
+                }
+            } else {
+                bufferedHistory.add(task);
+                linkedHistory.add(task);
+            }
+        }
+
+        Assertions.assertEquals(linkedHistory.getHistory(), bufferedHistory.getHistory());
+    }
+
+    @Test
+    void shouldRecordViewsFromManyThreads() throws Exception {
+        List<Task> tasks = createTasks(1_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    history.add(tasks.get(i % tasks.size()));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        List<Task> result = history.getHistory();
+        Assertions.assertFalse(result.isEmpty());
+        Assertions.assertEquals(result.size(), new HashSet<>(result).size());
+        Assertions.assertTrue(tasks.containsAll(result));
+    }
+}
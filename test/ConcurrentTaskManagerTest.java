@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.manager.ConcurrentTaskManager;
+import project.manager.TaskManager;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<TaskManager> {
+
+    @Override
+    protected TaskManager createTaskManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void shouldKeepEpicsConsistentUnderConcurrentSubtaskWrites() throws Exception {
+        int epicsCount = 8;
+        int subtasksPerEpic = 500;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < epicsCount; i++) {
+            Epic epic = new Epic("Эпик" + i, "Сделать" + i, Status.NEW);
+            taskManager.addNewEpic(epic);
+            epics.add(epic);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(epicsCount);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < epicsCount; i++) {
+            Epic epic = epics.get(i);
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(i * 10L);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < subtasksPerEpic; j++) {
+                    Subtask subtask = new Subtask("Подзадача" + j, "Сделать" + j, Status.DONE, epic.getId(),
+                            start.plusMinutes(j * 10L), Duration.ofMinutes(10));
+                    taskManager.addNewSubtask(subtask);
+                    taskManager.getSubtaskById(subtask.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(epicsCount * subtasksPerEpic, taskManager.getAllSubtasks().size());
+        Assertions.assertEquals(epicsCount * subtasksPerEpic, taskManager.getPrioritizedTasks().size());
+        for (Epic epic : epics) {
+            Assertions.assertEquals(subtasksPerEpic, taskManager.getSubtasksInEpic(epic).size());
+            Assertions.assertEquals(Status.DONE, epic.getStatus());
+            Assertions.assertEquals(Duration.ofMinutes(10L * subtasksPerEpic), epic.getDuration());
+        }
+    }
+
+    @Test
+    void shouldAcceptExactlyOneOfConcurrentConflictingTasks() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 10, 22, 10, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Task task = new Task("Задача" + i, "Описание" + i, Status.NEW, start.plusMinutes(i), Duration.ofHours(1));
+            futures.add(executor.submit(() -> taskManager.addNewTask(task)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(4, taskManager.getAllTasks().size());
+        Assertions.assertEquals(1, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldHandOutEpicCopiesThatLaterWritesDoNotChange() {
+        Epic epic = new Epic("Эпик1", "Описание1", Status.NEW);
+        taskManager.addNewEpic(epic);
+        Epic read = taskManager.getEpicById(epic.getId());
+
+        taskManager.addNewSubtask(new Subtask("Подзадача1", "Описание2", Status.DONE, epic.getId()));
+
+        Assertions.assertNotSame(epic, read);
+        Assertions.assertEquals(Status.NEW, read.getStatus());
+        Assertions.assertTrue(read.getSubtasks().isEmpty());
+        Assertions.assertEquals(Status.DONE, taskManager.getAllEpics().getFirst().getStatus());
+        Assertions.assertEquals(1, taskManager.getEpicById(epic.getId()).getSubtasks().size());
+    }
+
+    @Test
+    void shouldServePublishedSnapshotsUntilNextWrite() {
+        Epic epic = new Epic("Эпик1", "Описание1", Status.NEW);
+        taskManager.addNewEpic(epic);
+        taskManager.addNewTask(new Task("Задача1", "Описание2", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(1)));
+
+        Assertions.assertSame(taskManager.getEpicById(epic.getId()), taskManager.getEpicById(epic.getId()));
+        List<Task> prioritized = taskManager.getPrioritizedTasks();
+        Assertions.assertSame(prioritized, taskManager.getPrioritizedTasks());
+
+        taskManager.addNewTask(new Task("Задача2", "Описание3", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 12, 0), Duration.ofHours(1)));
+
+        Assertions.assertEquals(1, prioritized.size());
+        Assertions.assertEquals(2, taskManager.getPrioritizedTasks().size());
+    }
+}
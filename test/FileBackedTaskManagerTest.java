@@ -1,11 +1,17 @@
+import com.google.gson.Gson;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import project.exceptions.ManagerLoadException;
 import project.exceptions.ManagerSaveException;
 import project.manager.FileBackedTaskManager;
+import project.manager.Managers;
 
 import project.manager.TaskManager;
 import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
 import project.taskType.Task;
 import project.taskType.TaskType;
 
@@ -16,6 +22,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<TaskManager> {
     private FileBackedTaskManager taskManager;
@@ -137,4 +149,551 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<TaskManager> {
         Assertions.assertEquals(LocalDateTime.of(2024, 7, 1, 9, 0, 10), taskManager.getSubtaskById(8).getStartTime());
         Assertions.assertEquals("PT10S", taskManager.getSubtaskById(8).getDuration().toString());
     }
+
+    @Test
+    void shouldReplayWriteAheadLogOnLoad() throws IOException {
+        FileBackedTaskManager walManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build();
+        Task task = new Task("Задача1", "Сделать1", Status.NEW,
+                LocalDateTime.of(2022, 1, 22, 22, 31, 11), Duration.ofMinutes(30));
+        walManager.addNewTask(task);
+        Task removedTask = new Task("Задача2", "Сделать2", Status.NEW, null, null);
+        walManager.addNewTask(removedTask);
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW, null, null);
+        walManager.addNewEpic(epic);
+        Subtask subtask = new Subtask("Подзадача", "Сделать", Status.NEW, epic.getId(),
+                LocalDateTime.of(2024, 7, 1, 9, 0, 0), Duration.ofSeconds(10));
+        walManager.addNewSubtask(subtask);
+        subtask.setStatus(Status.DONE);
+        walManager.updateSubtask(subtask);
+        walManager.deleteTask(removedTask.getId());
+
+        Assertions.assertEquals(0, file.length());
+        Assertions.assertEquals(6, Files.readAllLines(new File(file.getPath() + ".log").toPath()).size());
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+
+        Assertions.assertEquals(walManager.getAllTasks(), loadedManager.getAllTasks());
+        Assertions.assertEquals(walManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        Assertions.assertEquals(Status.DONE, loadedManager.getSubtaskById(subtask.getId()).getStatus());
+        Assertions.assertEquals(Status.DONE, loadedManager.getEpicById(epic.getId()).getStatus());
+        Assertions.assertEquals(subtask.getStartTime(), loadedManager.getEpicById(epic.getId()).getStartTime());
+
+        Task nextTask = new Task("Задача3", "Сделать3", Status.NEW, null, null);
+        loadedManager.addNewTask(nextTask);
+        Assertions.assertEquals(subtask.getId() + 1, nextTask.getId());
+    }
+
+    @Test
+    void shouldCoalesceAsyncSavesUntilFlush() {
+        try (FileBackedTaskManager asyncManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_SNAPSHOT)
+                .flushInterval(Duration.ofMinutes(1)).flushThreshold(1_000).build()) {
+            for (int i = 0; i < 100; i++) {
+                asyncManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW, null, null));
+            }
+
+            Assertions.assertEquals(0, file.length());
+
+            asyncManager.flush();
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+            Assertions.assertEquals(asyncManager.getAllTasks(), loadedManager.getAllTasks());
+        }
+    }
+
+    @Test
+    void shouldCompactWriteAheadLogIntoSnapshot() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager walManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG)
+                .compactionRecords(3).compactionBytes(Long.MAX_VALUE).build()) {
+            for (int i = 0; i < 3; i++) {
+                walManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW, null, null));
+            }
+            walManager.flush();
+
+            Assertions.assertFalse(logFile.exists());
+            Assertions.assertEquals(4, Files.readAllLines(file.toPath()).size());
+
+            walManager.addNewTask(new Task("Задача3", "Сделать3", Status.NEW, null, null));
+            Assertions.assertEquals(1, Files.readAllLines(logFile.toPath()).size());
+
+            walManager.deleteTask(1);
+            walManager.compact();
+
+            Assertions.assertFalse(logFile.exists());
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+            Assertions.assertEquals(walManager.getAllTasks(), loadedManager.getAllTasks());
+        }
+    }
+
+    @Test
+    void shouldCompleteDurabilityFutureOnceAsyncLogRecordsAreWritten() throws Exception {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager asyncManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).build()) {
+            Epic epic = new Epic("Эпик", "Описание", Status.NEW, null, null);
+            asyncManager.addNewEpic(epic);
+            for (int i = 0; i < 500; i++) {
+                asyncManager.addNewSubtask(new Subtask("Подзадача" + i, "Сделать" + i, Status.NEW, epic.getId(),
+                        LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * i), Duration.ofMinutes(1)));
+            }
+            asyncManager.deleteSubtaskById(2);
+            asyncManager.whenDurable().get(10, TimeUnit.SECONDS);
+
+            Assertions.assertEquals(502, Files.readAllLines(logFile.toPath()).size());
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).load();
+            Assertions.assertEquals(asyncManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+            Assertions.assertEquals(asyncManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+            loadedManager.close();
+
+            asyncManager.compact();
+            Assertions.assertFalse(logFile.exists());
+            asyncManager.deleteAllSubtasks();
+            asyncManager.whenDurable().get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).load()
+                    .getAllSubtasks().isEmpty());
+        }
+    }
+
+    @Test
+    void shouldGiveBackAsyncLogPermitWhenChangeIsRejected() throws Exception {
+        try (FileBackedTaskManager asyncManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).build()) {
+            CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 100; i++) {
+                    Assertions.assertThrows(IllegalArgumentException.class, () -> asyncManager.deleteTask(999));
+                    asyncManager.addNewTask(null);
+                }
+                asyncManager.addNewTask(new Task("Задача1", "Сделать1", Status.NEW, null, null));
+            }).get(10, TimeUnit.SECONDS);
+            asyncManager.whenDurable().get(10, TimeUnit.SECONDS);
+
+            Assertions.assertEquals(1, FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).load().getAllTasks().size());
+        }
+    }
+
+    // Writes to /dev/full fail with "No space left on device", which stands in for a failing disk.
+    @Test
+    void shouldRefuseChangesAfterFailedAsyncLogWriteUntilSaved() throws Exception {
+        File deviceFull = new File("/dev/full");
+        Assumptions.assumeTrue(deviceFull.exists());
+        File logFile = new File(file.getPath() + ".log");
+        Files.deleteIfExists(logFile.toPath());
+        Files.createSymbolicLink(logFile.toPath(), deviceFull.toPath());
+        try (FileBackedTaskManager asyncManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).build()) {
+            asyncManager.addNewTask(new Task("Задача1", "Сделать1", Status.NEW, null, null));
+            CompletableFuture<Void> durable = asyncManager.whenDurable();
+
+            Assertions.assertThrows(ExecutionException.class, () -> durable.get(10, TimeUnit.SECONDS));
+            Assertions.assertThrows(ManagerSaveException.class, asyncManager::flush);
+            Assertions.assertThrows(ManagerSaveException.class, asyncManager::flush);
+            Assertions.assertThrows(ManagerSaveException.class,
+                    () -> asyncManager.addNewTask(new Task("Задача2", "Сделать2", Status.NEW, null, null)));
+            Assertions.assertEquals(1, asyncManager.getAllTasks().size());
+
+            asyncManager.save();
+            asyncManager.addNewTask(new Task("Задача2", "Сделать2", Status.NEW, null, null));
+            asyncManager.flush();
+
+            Assertions.assertEquals(asyncManager.getAllTasks(), FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).load().getAllTasks());
+        }
+    }
+
+    @Test
+    void shouldAppendOnlyChangedRecordsInDeltaMode() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager deltaManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.DELTA).build()) {
+            for (int i = 0; i < 100; i++) {
+                deltaManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW,
+                        LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i), Duration.ofMinutes(30)));
+            }
+            deltaManager.flush();
+            Assertions.assertEquals(100, Files.readAllLines(logFile.toPath()).size());
+
+            Task first = deltaManager.getTaskById(1);
+            Task second = deltaManager.getTaskById(2);
+            LocalDateTime firstStart = first.getStartTime();
+            first.setStartTime(LocalDateTime.of(2023, 1, 1, 0, 0));
+            deltaManager.updateTask(first);
+            second.setStartTime(firstStart);
+            deltaManager.updateTask(second);
+            second.setStatus(Status.DONE);
+            deltaManager.updateTask(second);
+            Task temporary = new Task("Черновик", "Удалить", Status.NEW, null, null);
+            deltaManager.addNewTask(temporary);
+            deltaManager.deleteTask(temporary.getId());
+            deltaManager.deleteTask(7);
+            deltaManager.flush();
+
+            Assertions.assertEquals(105, Files.readAllLines(logFile.toPath()).size());
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.DELTA).load();
+            Assertions.assertEquals(deltaManager.getAllTasks(), loadedManager.getAllTasks());
+            Assertions.assertEquals(firstStart, loadedManager.getTaskById(2).getStartTime());
+            Assertions.assertEquals(Status.DONE, loadedManager.getTaskById(2).getStatus());
+            Assertions.assertEquals(deltaManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        }
+    }
+
+    @Test
+    void shouldMergeDeltasIntoSnapshot() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager deltaManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.DELTA).build()) {
+            Epic epic = new Epic("Эпик", "Описание", Status.NEW, null, null);
+            deltaManager.addNewEpic(epic);
+            deltaManager.addNewSubtask(new Subtask("Подзадача1", "Сделать1", Status.DONE, epic.getId(), null, null));
+            deltaManager.addNewSubtask(new Subtask("Подзадача2", "Сделать2", Status.NEW, epic.getId(), null, null));
+            deltaManager.flush();
+
+            deltaManager.deleteAllSubtasks();
+            deltaManager.addNewSubtask(new Subtask("Подзадача3", "Сделать3", Status.DONE, epic.getId(), null, null));
+            Epic renamedEpic = new Epic("Новый эпик", "Новое описание", Status.NEW, null, null);
+            renamedEpic.setId(epic.getId());
+            deltaManager.updateEpic(renamedEpic);
+            deltaManager.flush();
+
+            FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.DELTA).load();
+            Assertions.assertEquals(deltaManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+            Assertions.assertEquals("Новый эпик", loadedManager.getEpicById(epic.getId()).getName());
+            Assertions.assertEquals(Status.DONE, loadedManager.getEpicById(epic.getId()).getStatus());
+
+            deltaManager.compact();
+
+            Assertions.assertFalse(logFile.exists());
+            loadedManager = FileBackedTaskManager.builder(file)
+                    .persistenceMode(FileBackedTaskManager.PersistenceMode.DELTA).load();
+            Assertions.assertEquals(deltaManager.getAllEpics(), loadedManager.getAllEpics());
+            Assertions.assertEquals(deltaManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        }
+    }
+
+    @Test
+    void shouldDropTornLogTailOnLoad() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager walManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build()) {
+            for (int i = 0; i < 3; i++) {
+                walManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW, null, null));
+            }
+        }
+        long intactLength = logFile.length();
+        try (FileWriter writer = new FileWriter(logFile, true)) {
+            writer.write("1a2b3c4d,ADD,4,TASK,Зада");
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+
+        Assertions.assertEquals(3, loadedManager.getAllTasks().size());
+        Assertions.assertEquals(intactLength, logFile.length());
+
+        loadedManager.addNewTask(new Task("Задача3", "Сделать3", Status.NEW, null, null));
+        loadedManager.close();
+        Assertions.assertEquals(4, FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load().getAllTasks().size());
+    }
+
+    @Test
+    void shouldReplayLogWrittenWithoutChecksumsAndFoldItIntoSnapshot() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager walManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build()) {
+            for (int i = 0; i < 3; i++) {
+                walManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW, null, null));
+            }
+            walManager.deleteTask(2);
+        }
+        List<String> lines = Files.readAllLines(logFile.toPath());
+        Files.write(logFile.toPath(), lines.stream().map(line -> line.substring(line.indexOf(',') + 1)).toList());
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+
+        Assertions.assertEquals(List.of(1, 3), loadedManager.getAllTasks().stream().map(Task::getId).sorted().toList());
+        Assertions.assertFalse(logFile.exists() && logFile.length() > 0);
+
+        loadedManager.addNewTask(new Task("Задача3", "Сделать3", Status.NEW, null, null));
+        loadedManager.close();
+        Assertions.assertEquals(3, FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load().getAllTasks().size());
+    }
+
+    @Test
+    void shouldRefuseDamagedLogWrittenWithoutChecksums() throws IOException {
+        Files.write(new File(file.getPath() + ".log").toPath(),
+                List.of("ADD,1,TASK,Задача1,NEW,Сделать1,null,null,", "DELETE,TASK,не число"));
+
+        Assertions.assertThrows(ManagerLoadException.class, () -> FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load());
+    }
+
+    @Test
+    void shouldStopReplayAtRecordWithBadChecksum() throws IOException {
+        File logFile = new File(file.getPath() + ".log");
+        try (FileBackedTaskManager walManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build()) {
+            for (int i = 0; i < 3; i++) {
+                walManager.addNewTask(new Task("Задача" + i, "Сделать" + i, Status.NEW, null, null));
+            }
+        }
+        List<String> lines = Files.readAllLines(logFile.toPath());
+        lines.set(1, lines.get(1).replace("Сделать1", "Сделать7"));
+        Files.write(logFile.toPath(), lines);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+
+        Assertions.assertEquals(1, loadedManager.getAllTasks().size());
+        Assertions.assertEquals("Сделать0", loadedManager.getTaskById(1).getDescription());
+        Assertions.assertEquals(List.of(lines.getFirst()), Files.readAllLines(logFile.toPath()));
+    }
+
+    @Test
+    void shouldReplaceSnapshotAtomically() throws IOException {
+        FileBackedTaskManager syncedManager = FileBackedTaskManager.builder(file)
+                .fsyncPolicy(FileBackedTaskManager.FsyncPolicy.SNAPSHOTS).build();
+        syncedManager.addNewTask(new Task("Задача", "Сделать", Status.NEW, null, null));
+        syncedManager.addNewTask(new Task("Задача2", "Сделать2", Status.NEW, null, null));
+
+        Assertions.assertFalse(new File(file.getPath() + ".new").exists());
+        Assertions.assertEquals(syncedManager.getAllTasks(), FileBackedTaskManager.loadFromFile(file).getAllTasks());
+    }
+
+    @Test
+    void shouldRestoreTasksFromBinarySnapshot() throws IOException {
+        FileBackedTaskManager binaryManager = FileBackedTaskManager.builder(file)
+                .snapshotFormat(FileBackedTaskManager.SnapshotFormat.BINARY).build();
+        binaryManager.addNewTask(new Task("Задача", "Сделать", Status.IN_PROGRESS,
+                LocalDateTime.of(2022, 1, 22, 22, 31, 11), Duration.ofSeconds(32423423)));
+        binaryManager.addNewTask(new Task("Задача", "Сделать", Status.NEW, null, null));
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW, null, null);
+        binaryManager.addNewEpic(epic);
+        binaryManager.addNewSubtask(new Subtask("Подзадача", "Сделать", Status.DONE, epic.getId(),
+                LocalDateTime.of(2024, 7, 1, 9, 0, 0), Duration.ofSeconds(10)));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+
+        Assertions.assertEquals(binaryManager.getAllTasks(), loadedManager.getAllTasks());
+        Assertions.assertEquals(binaryManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        Assertions.assertEquals(Status.IN_PROGRESS, loadedManager.getTaskById(1).getStatus());
+        Assertions.assertEquals(LocalDateTime.of(2022, 1, 22, 22, 31, 11), loadedManager.getTaskById(1).getStartTime());
+        Assertions.assertNull(loadedManager.getTaskById(2).getStartTime());
+        Assertions.assertEquals(Status.DONE, loadedManager.getEpicById(epic.getId()).getStatus());
+        Assertions.assertEquals(LocalDateTime.of(2024, 7, 1, 9, 0, 10), loadedManager.getEpicById(epic.getId()).getEndTime());
+
+        File csvFile = File.createTempFile("export", ".csv");
+        loadedManager.exportCsv(csvFile);
+        Assertions.assertEquals(binaryManager.getAllTasks(), FileBackedTaskManager.loadFromFile(csvFile).getAllTasks());
+    }
+
+    @Test
+    void shouldRestoreTasksFromCompressedSnapshot() throws IOException {
+        FileBackedTaskManager compressedManager = FileBackedTaskManager.builder(file)
+                .snapshotFormat(FileBackedTaskManager.SnapshotFormat.CSV_GZIP).build();
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW, null, null);
+        compressedManager.addNewEpic(epic);
+        for (int i = 0; i < 1_000; i++) {
+            compressedManager.addNewSubtask(new Subtask("Подзадача" + i, "Сделать, \"срочно\"", Status.NEW,
+                    epic.getId(), LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * i), Duration.ofMinutes(1)));
+        }
+
+        byte[] header = Files.readAllBytes(file.toPath());
+        Assertions.assertEquals((byte) 0x1f, header[0]);
+        Assertions.assertEquals((byte) 0x8b, header[1]);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+        Assertions.assertEquals(compressedManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        loadedManager.deleteSubtaskById(2);
+        Assertions.assertEquals((byte) 0x1f, Files.readAllBytes(file.toPath())[0]);
+
+        File exportFile = File.createTempFile("export", ".csv.gz");
+        loadedManager.exportCsv(exportFile, true);
+        File plainExportFile = File.createTempFile("export", ".csv");
+        loadedManager.exportCsv(plainExportFile);
+        Assertions.assertTrue(exportFile.length() * 4 < plainExportFile.length());
+        Assertions.assertEquals(loadedManager.getAllSubtasks(),
+                FileBackedTaskManager.loadFromFile(exportFile).getAllSubtasks());
+    }
+
+    @Test
+    void shouldReadDescriptionsFromFileOnDemand() {
+        String longDescription = "Подробное описание, \"с кавычками\"\nи переносом строки. ".repeat(4);
+        Epic epic = new Epic("Эпик", longDescription + "эпик", Status.NEW, null, null);
+        taskManager.addNewEpic(epic);
+        for (int i = 0; i < 100; i++) {
+            taskManager.addNewSubtask(new Subtask("Подзадача" + i, longDescription + i, Status.NEW, epic.getId(),
+                    LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * i), Duration.ofMinutes(1)));
+        }
+        taskManager.addNewTask(new Task("Задача", "Коротко", Status.NEW));
+
+        FileBackedTaskManager lazyManager = FileBackedTaskManager.builder(file)
+                .descriptionStorage(FileBackedTaskManager.DescriptionStorage.ON_DISK).load();
+        Assertions.assertEquals(taskManager.getAllSubtasks(), lazyManager.getAllSubtasks());
+        Assertions.assertEquals(taskManager.getAllEpics(), lazyManager.getAllEpics());
+        Assertions.assertNotNull(lazyManager.getSubtaskById(50).getDescriptionLoader());
+        Assertions.assertNull(lazyManager.getTaskById(102).getDescriptionLoader());
+
+        Subtask deleted = lazyManager.getSubtaskById(2);
+        lazyManager.deleteSubtaskById(2);
+        Subtask updated = lazyManager.getSubtaskById(3);
+        updated.setDescription("Новое описание, которое снова стоит держать в файле: " + longDescription);
+        lazyManager.updateSubtask(updated);
+        lazyManager.addNewTask(new Task("Новая задача", longDescription + "новая", Status.NEW));
+
+        Assertions.assertEquals(longDescription + 0, deleted.getDescription());
+        Assertions.assertNull(deleted.getDescriptionLoader());
+        Assertions.assertNotNull(updated.getDescriptionLoader());
+        Assertions.assertEquals("Новое описание, которое снова стоит держать в файле: " + longDescription,
+                updated.getDescription());
+        Assertions.assertEquals(longDescription + 48, lazyManager.getSubtaskById(50).getDescription());
+        Assertions.assertEquals(longDescription + "новая", lazyManager.getTaskById(103).getDescription());
+
+        lazyManager.close();
+        Assertions.assertEquals(longDescription + 99, lazyManager.getSubtaskById(101).getDescription());
+        Assertions.assertEquals(lazyManager.getAllSubtasks(), FileBackedTaskManager.loadFromFile(file).getAllSubtasks());
+    }
+
+    @Test
+    void shouldSerializeDescriptionsKeptOnDisk() {
+        String longDescription = "Подробное описание задачи. ".repeat(4);
+        taskManager.addNewTask(new Task("Задача", longDescription, Status.NEW));
+
+        FileBackedTaskManager lazyManager = FileBackedTaskManager.builder(file)
+                .descriptionStorage(FileBackedTaskManager.DescriptionStorage.ON_DISK).load();
+        Task lazyTask = lazyManager.getTaskById(1);
+        Gson gson = Managers.getGson();
+
+        Assertions.assertNotNull(lazyTask.getDescriptionLoader());
+        Assertions.assertEquals(longDescription, gson.fromJson(gson.toJson(lazyTask), Task.class).getDescription());
+        Assertions.assertFalse(lazyTask.toString().contains(longDescription));
+    }
+
+    @Test
+    void shouldCompareDescriptionsKeptOnDiskByValue() {
+        String longDescription = "Подробное описание задачи. ".repeat(4);
+        Task task = new Task("Задача", longDescription, Status.NEW);
+        taskManager.addNewTask(task);
+
+        Task lazyTask = FileBackedTaskManager.builder(file)
+                .descriptionStorage(FileBackedTaskManager.DescriptionStorage.ON_DISK).load().getTaskById(1);
+        Task changedTask = new Task(task);
+        changedTask.setDescription(longDescription + "изменено");
+
+        Assertions.assertNotNull(lazyTask.getDescriptionLoader());
+        Assertions.assertEquals(task, lazyTask);
+        Assertions.assertEquals(lazyTask, task);
+        Assertions.assertEquals(task.hashCode(), lazyTask.hashCode());
+        Assertions.assertNotEquals(changedTask, lazyTask);
+        Assertions.assertNotEquals(lazyTask, changedTask);
+    }
+
+    @Test
+    void shouldKeepEarlierOfOverlappingTasksAfterReload() {
+        Task earlierTask = new Task("Задача1", "Описание1", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(2));
+        Task overlappingTask = new Task("Задача2", "Описание2", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 9, 0), Duration.ofHours(2));
+        taskManager.addNewTask(earlierTask);
+        taskManager.addNewTask(overlappingTask);
+        Assertions.assertEquals(List.of(earlierTask), taskManager.getPrioritizedTasks());
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+
+        Assertions.assertEquals(List.of(earlierTask), loadedManager.getPrioritizedTasks());
+        Assertions.assertEquals(2, loadedManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldLoadLargeFileInParallelChunks() {
+        List<Task> records = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) {
+            records.add(new Subtask("Подзадача" + i, "Сделать" + i, i % 3 == 0 ? Status.DONE : Status.NEW,
+                    1 + i % 100, LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * i), Duration.ofMinutes(1)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Epic epic = new Epic("Эпик" + i, "Описание" + i, Status.NEW, null, null);
+            epic.setId(i + 1);
+            records.add(epic);
+        }
+        taskManager.bulkLoad(records);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileBackedTaskManager parallelManager = FileBackedTaskManager.builder(file).parsePool(pool).load();
+            FileBackedTaskManager sequentialManager = FileBackedTaskManager.loadFromFile(file);
+
+            Assertions.assertEquals(30_000, parallelManager.getAllSubtasks().size());
+            Assertions.assertEquals(sequentialManager.getAllSubtasks(), parallelManager.getAllSubtasks());
+            Assertions.assertEquals(sequentialManager.getPrioritizedTasks(), parallelManager.getPrioritizedTasks());
+            Assertions.assertEquals(Status.IN_PROGRESS, parallelManager.getEpicById(1).getStatus());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldKeepFirstRecordOfHeaderlessFileInParallelLoad() throws IOException {
+        Files.writeString(file.toPath(), "1,TASK,Задача1,NEW,Сделать1,,,\n2,TASK,Задача2,DONE,Сделать2,,,\n");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FileBackedTaskManager parallelManager = FileBackedTaskManager.builder(file).parsePool(pool).load();
+
+            Assertions.assertEquals(FileBackedTaskManager.loadFromFile(file).getAllTasks(),
+                    parallelManager.getAllTasks());
+            Assertions.assertEquals(2, parallelManager.getAllTasks().size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldQuoteFieldsWithSeparatorsAndLineBreaks() throws IOException {
+        Task quotedTask = new Task("Купить хлеб, молоко", "Сказать \"спасибо\"\nи уйти", Status.NEW,
+                LocalDateTime.of(2024, 7, 1, 9, 0, 0), Duration.ofMillis(1500));
+        taskManager.addNewTask(quotedTask);
+        Task emptyTask = new Task("", null, Status.DONE, null, null);
+        taskManager.addNewTask(emptyTask);
+
+        Assertions.assertEquals("id,type,name,status,description,start_time,duration,epic\n" +
+                "1,TASK,\"Купить хлеб, молоко\",NEW,\"Сказать \"\"спасибо\"\"\nи уйти\",2024-07-01T09:00:00,PT1.5S,\n" +
+                "2,TASK,\"\",DONE,,,,\n", Files.readString(file.toPath()));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file);
+        Assertions.assertEquals(quotedTask.getName(), loadedManager.getTaskById(1).getName());
+        Assertions.assertEquals(quotedTask.getDescription(), loadedManager.getTaskById(1).getDescription());
+        Assertions.assertEquals(Duration.ofMillis(1500), loadedManager.getTaskById(1).getDuration());
+        Assertions.assertEquals("", loadedManager.getTaskById(2).getName());
+        Assertions.assertNull(loadedManager.getTaskById(2).getDescription());
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            FileBackedTaskManager parallelManager = FileBackedTaskManager.builder(file).parsePool(pool).load();
+            Assertions.assertEquals(quotedTask.getDescription(), parallelManager.getTaskById(1).getDescription());
+        } finally {
+            pool.shutdown();
+        }
+
+        File walFile = File.createTempFile("wal", ".csv");
+        FileBackedTaskManager walManager = FileBackedTaskManager.builder(walFile)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build();
+        walManager.addNewTask(new Task("Купить хлеб, молоко", "Сказать \"спасибо\"\nи уйти", Status.NEW));
+        FileBackedTaskManager replayedManager = FileBackedTaskManager.builder(walFile)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).load();
+        Assertions.assertEquals(quotedTask.getDescription(), replayedManager.getTaskById(1).getDescription());
+    }
 }
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import project.manager.HistoryManager;
+import project.taskStatus.Status;
+import project.taskType.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+abstract class HistoryManagerTest<T extends HistoryManager> {
+    protected T history;
+
+    protected abstract T createHistoryManager();
+
+    @BeforeEach
+    void setUp() {
+        history = createHistoryManager();
+    }
+
+    @Test
+    void shouldMoveViewedAgainTaskToEnd() {
+        List<Task> tasks = createTasks(3);
+
+        history.add(tasks.get(0));
+        history.add(tasks.get(1));
+        history.add(tasks.get(2));
+        history.add(tasks.get(0));
+
+        Assertions.assertEquals(List.of(tasks.get(1), tasks.get(2), tasks.get(0)), history.getHistory());
+    }
+
+    @Test
+    void shouldRemoveViewedTask() {
+        List<Task> tasks = createTasks(2);
+
+        history.add(tasks.get(0));
+        history.add(tasks.get(1));
+        history.remove(tasks.get(0).getId());
+
+        Assertions.assertEquals(List.of(tasks.get(1)), history.getHistory());
+    }
+
+    protected static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Task task = new Task("Задача" + i, "Сделать" + i, Status.NEW);
+            task.setId(i);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
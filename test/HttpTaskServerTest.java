@@ -4,9 +4,11 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import project.manager.ConcurrentTaskManager;
 import project.manager.HttpTaskServer;
 import project.manager.InMemoryTaskManager;
 import project.manager.Managers;
+import project.manager.ReplicaTaskManager;
 import project.manager.TaskManager;
 import project.taskStatus.Status;
 import project.taskType.Epic;
@@ -14,13 +16,18 @@ import project.taskType.Subtask;
 import project.taskType.Task;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class HttpTaskServerTest {
     private HttpTaskServer httpServer;
@@ -504,4 +511,136 @@ public class HttpTaskServerTest {
 
         Assertions.assertEquals(returnedPrioritized, taskManager.getPrioritizedTasks());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testHandleConcurrentPostsWithConcurrentManager() throws Exception {
+        httpServer.stopServer();
+        taskManager = new ConcurrentTaskManager();
+        httpServer = new HttpTaskServer(taskManager, HttpTaskServer.ExecutorMode.VIRTUAL_THREADS, 4);
+        httpServer.startServer();
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Task task = new Task("Задача" + i, "Сделать" + i, Status.NEW);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(URL + "/tasks"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            Assertions.assertEquals(201, response.get().statusCode());
+        }
+
+        Assertions.assertEquals(50, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void testHandleExportAndImportJsonLines() throws IOException, InterruptedException {
+        taskManager.addNewTask(new Task("Задача1", "Сделать1", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(1)));
+        Epic epic = new Epic("Эпик1", "Сделать2", Status.NEW);
+        taskManager.addNewEpic(epic);
+        taskManager.addNewSubtask(new Subtask("Подзадача1", "Сделать3", Status.DONE, epic.getId(),
+                LocalDateTime.of(2024, 10, 22, 10, 30), Duration.ofHours(1)));
+
+        HttpRequest export = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/export"))
+                .GET()
+                .build();
+        HttpResponse<String> exported = client.send(export, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, exported.statusCode());
+        Assertions.assertEquals(3, exported.body().lines().count());
+
+        TaskManager source = taskManager;
+        httpServer.stopServer();
+        taskManager = new InMemoryTaskManager();
+        httpServer = new HttpTaskServer(taskManager);
+        httpServer.startServer();
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/import"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(exported.body()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertEquals(201, response.statusCode());
+        Assertions.assertEquals(gson.toJson(List.of(3)), response.body());
+        Assertions.assertEquals(source.getAllTasks(), taskManager.getAllTasks());
+        Assertions.assertEquals(source.getAllEpics(), taskManager.getAllEpics());
+        Assertions.assertEquals(source.getAllSubtasks(), taskManager.getAllSubtasks());
+    }
+
+    @Test
+    void testHandleImportRejectsMalformedJsonLines() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/import"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"TASK\",\"id\":1\n{\"type\""))
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        Assertions.assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    void testHandleImportRejectsTakenIds() throws IOException, InterruptedException {
+        taskManager.addNewTask(new Task("Задача1", "Сделать1", Status.NEW));
+        HttpRequest taken = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/import"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"EPIC\",\"id\":1,\"name\":\"Эпик1\"}\n"))
+                .build();
+        HttpRequest repeated = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/import"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"type\":\"TASK\",\"id\":2,\"name\":\"Задача2\"}\n"
+                        + "{\"type\":\"EPIC\",\"id\":2,\"name\":\"Эпик2\"}\n"))
+                .build();
+
+        Assertions.assertEquals(409, client.send(taken, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assertions.assertEquals(409, client.send(repeated, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assertions.assertTrue(taskManager.getAllEpics().isEmpty());
+        Assertions.assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void testHandleReplicaRejectsChangesUntilPromoted() throws IOException, InterruptedException {
+        httpServer.stopServer();
+        int unusedPort;
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            unusedPort = socket.getLocalPort();
+        }
+        ReplicaTaskManager replica = new ReplicaTaskManager(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), unusedPort));
+        replica.start();
+        taskManager = replica;
+        httpServer = new HttpTaskServer(taskManager);
+        httpServer.startServer();
+
+        HttpRequest post = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/tasks"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(new Task("Задача1", "Сделать1", Status.NEW))))
+                .build();
+        Assertions.assertEquals(405, client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest status = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/replication"))
+                .GET()
+                .build();
+        HttpResponse<String> statusResponse = client.send(status, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(200, statusResponse.statusCode());
+        Assertions.assertFalse(gson.fromJson(statusResponse.body(), ReplicaTaskManager.ReplicationStatus.class)
+                .promoted());
+
+        HttpRequest promote = HttpRequest.newBuilder()
+                .uri(URI.create(URL + "/replication/promote"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        Assertions.assertEquals(200, client.send(promote, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assertions.assertEquals(201, client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        Assertions.assertEquals(1, taskManager.getAllTasks().size());
+    }
+}
@@ -1,7 +1,9 @@
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import project.manager.HistoryManager;
 import project.manager.InMemoryTaskManager;
+import project.manager.Managers;
 import project.manager.TaskManager;
 import project.taskStatus.Status;
 import project.taskType.Epic;
@@ -236,4 +238,22 @@ public class InMemoryHistoryManagerTest extends TaskManagerTest<TaskManager> {
 
         Assertions.assertEquals(expectedList, taskManager.getHistory());
     }
+
+    @Test
+    void shouldEvictOldestTaskWhenCapacityReached() {
+        HistoryManager historyManager = Managers.getDefaultHistory(2);
+        Task task1 = new Task("Задача1", "Сделать1", Status.NEW);
+        task1.setId(1);
+        Task task2 = new Task("Задача2", "Сделать2", Status.NEW);
+        task2.setId(2);
+        Task task3 = new Task("Задача3", "Сделать3", Status.NEW);
+        task3.setId(3);
+
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task1);
+        historyManager.add(task3);
+
+        Assertions.assertEquals(List.of(task1, task3), historyManager.getHistory());
+    }
 }
\ No newline at end of file
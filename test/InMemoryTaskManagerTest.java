@@ -8,6 +8,10 @@ import project.taskType.Epic;
 import project.taskType.Subtask;
 import project.taskType.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 public class InMemoryTaskManagerTest extends TaskManagerTest<TaskManager> {
     protected TaskManager taskManager;
 
@@ -145,4 +149,36 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<TaskManager> {
     void shouldManagerIsNotNull() {
         Assertions.assertNotNull(taskManager);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldBulkLoadRecordsAndReportIntersections() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        LocalDateTime start = LocalDateTime.of(2024, 7, 1, 9, 0);
+        Subtask subtask1 = new Subtask("Подзадача1", "Сделать1", Status.DONE, 1, start, Duration.ofMinutes(30));
+        subtask1.setId(2);
+        Subtask subtask2 = new Subtask("Подзадача2", "Сделать2", Status.NEW, 1,
+                start.plusHours(1), Duration.ofMinutes(30));
+        subtask2.setId(3);
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW);
+        epic.setId(1);
+        Task task = new Task("Задача", "Сделать", Status.NEW, start.plusMinutes(10), Duration.ofMinutes(5));
+        task.setId(7);
+
+        List<Task> conflicts = manager.bulkLoad(List.of(subtask1, subtask2, epic, task));
+
+        Assertions.assertEquals(List.of(task), conflicts);
+        Assertions.assertEquals(List.of(subtask1, subtask2), manager.getPrioritizedTasks());
+        Assertions.assertEquals(List.of(2, 3), epic.getSubtasks());
+        Assertions.assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        Assertions.assertEquals(start, epic.getStartTime());
+        Assertions.assertEquals(start.plusHours(1).plusMinutes(30), epic.getEndTime());
+        Assertions.assertEquals(task, manager.getTaskById(7));
+
+        Task nextTask = new Task("Задача2", "Сделать2", Status.NEW);
+        manager.addNewTask(nextTask);
+        Assertions.assertEquals(8, nextTask.getId());
+
+        Subtask orphan = new Subtask("Подзадача3", "Сделать3", Status.NEW, 42);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> manager.bulkLoad(List.of(orphan)));
+    }
+}
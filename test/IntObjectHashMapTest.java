@@ -0,0 +1,61 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.collections.IntArrayList;
+import project.collections.IntObjectHashMap;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class IntObjectHashMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapOnRandomOperations() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000) * 16;
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+            } else {
+                Assertions.assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        Assertions.assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> Assertions.assertEquals(value, map.get(key)));
+        map.forEachKey(key -> Assertions.assertTrue(expected.containsKey(key)));
+    }
+
+    @Test
+    void shouldKeepIdOrderForSequentialKeys() {
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        for (int i = 1; i <= 100; i++) {
+            map.put(i, i);
+        }
+        map.remove(50);
+
+        List<Integer> values = map.values();
+        Assertions.assertEquals(99, values.size());
+        Assertions.assertEquals(1, values.get(0));
+        Assertions.assertEquals(100, values.get(98));
+        Assertions.assertFalse(map.containsKey(50));
+    }
+
+    @Test
+    void shouldIntArrayListRemoveByValue() {
+        IntArrayList list = new IntArrayList();
+        list.add(3);
+        list.add(5);
+        list.add(7);
+
+        list.remove(Integer.valueOf(5));
+
+        Assertions.assertEquals(List.of(3, 7), list);
+        Assertions.assertTrue(list.contains(7));
+        Assertions.assertFalse(list.contains(5));
+    }
+}
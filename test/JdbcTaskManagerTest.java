@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.manager.JdbcTaskManager;
+import project.manager.TaskManager;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+import project.taskType.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcTaskManagerTest extends TaskManagerTest<TaskManager> {
+    private static int databaseNumber;
+
+    @Override
+    protected TaskManager createTaskManager() {
+        return new JdbcTaskManager("jdbc:h2:mem:tasks" + ++databaseNumber);
+    }
+
+    @Test
+    void shouldBulkLoadAndReopenDatabaseFile() throws IOException {
+        File directory = File.createTempFile("tasks", "");
+        directory.delete();
+        String url = "jdbc:h2:" + new File(directory, "board").getAbsolutePath();
+        List<Task> records = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            records.add(new Subtask("Подзадача" + i, "Сделать" + i, i % 2 == 0 ? Status.DONE : Status.NEW,
+                    1 + i % 10, LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * (999 - i)), Duration.ofMinutes(1)));
+        }
+        for (int i = 0; i < 10; i++) {
+            Epic epic = new Epic("Эпик" + i, "Описание" + i, Status.NEW, null, null);
+            epic.setId(i + 1);
+            records.add(epic);
+        }
+        Task conflictingTask = new Task("Задача", "Пересекается", Status.NEW,
+                LocalDateTime.of(2024, 1, 1, 0, 0), Duration.ofMinutes(5));
+        records.add(conflictingTask);
+
+        try (JdbcTaskManager jdbcManager = new JdbcTaskManager(url)) {
+            List<Task> conflicts = jdbcManager.bulkLoad(records);
+            Assertions.assertEquals(1, conflicts.size());
+        }
+
+        try (JdbcTaskManager reopenedManager = new JdbcTaskManager(url)) {
+            Assertions.assertEquals(1_000, reopenedManager.getAllSubtasks().size());
+            Assertions.assertEquals(1, reopenedManager.getAllTasks().size());
+            List<Task> prioritizedTasks = reopenedManager.getPrioritizedTasks();
+            Assertions.assertEquals(1_000, prioritizedTasks.size());
+            for (int i = 1; i < prioritizedTasks.size(); i++) {
+                Assertions.assertTrue(prioritizedTasks.get(i - 1).getEndTime()
+                        .isBefore(prioritizedTasks.get(i).getStartTime()));
+            }
+
+            Epic epic = reopenedManager.getEpicById(2);
+            Assertions.assertEquals(100, reopenedManager.getSubtasksInEpic(epic).size());
+            Assertions.assertEquals(100, epic.getSubtasks().size());
+            Assertions.assertEquals(Status.NEW, epic.getStatus());
+            Assertions.assertEquals(Status.DONE, reopenedManager.getEpicById(1).getStatus());
+            Assertions.assertEquals(Duration.ofMinutes(100), epic.getDuration());
+
+            Task nextTask = new Task("Задача2", "Сделать2", Status.NEW, null, null);
+            reopenedManager.addNewTask(nextTask);
+            Assertions.assertEquals(conflictingTask.getId() + 1, nextTask.getId());
+        }
+    }
+
+    @Test
+    void shouldPageThroughEveryRecordInForEach() {
+        List<Task> records = new ArrayList<>();
+        for (int i = 1; i <= 2_500; i++) {
+            Epic epic = new Epic("Эпик" + i, "Описание" + i, Status.NEW, null, null);
+            epic.setId(i);
+            records.add(epic);
+            records.add(new Subtask("Подзадача" + i, "Сделать" + i, Status.NEW, i));
+        }
+        taskManager.bulkLoad(records);
+
+        List<Task> epics = new ArrayList<>();
+        taskManager.forEach(TaskType.EPIC, epics::add);
+        List<Task> subtasks = new ArrayList<>();
+        taskManager.forEach(TaskType.SUBTASK, subtasks::add);
+
+        Assertions.assertEquals(taskManager.getAllEpics(), epics);
+        Assertions.assertEquals(taskManager.getAllSubtasks(), subtasks);
+        for (Task epic : epics) {
+            Assertions.assertEquals(1, ((Epic) epic).getSubtasks().size());
+        }
+        Assertions.assertTrue(taskManager.getHistory().isEmpty());
+    }
+}
@@ -0,0 +1,261 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import project.manager.FileBackedTaskManager;
+import project.manager.ReplicaTaskManager;
+import project.manager.ReplicationSource;
+import project.manager.TaskManager;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32C;
+
+public class ReplicaTaskManagerTest extends TaskManagerTest<TaskManager> {
+
+    // A promoted replica that never reached its primary behaves like an InMemoryTaskManager.
+    @Override
+    protected TaskManager createTaskManager() throws IOException {
+        ReplicaTaskManager replica = new ReplicaTaskManager(unusedAddress());
+        replica.promote();
+        return replica;
+    }
+
+    @Test
+    void shouldFollowPrimaryFromSnapshotThenLog() throws IOException {
+        File file = File.createTempFile("primary", ".csv");
+        try (FileBackedTaskManager primary = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build()) {
+            Epic epic = new Epic("Эпик1", "Описание1", Status.NEW);
+            primary.addNewEpic(epic);
+            primary.addNewSubtask(new Subtask("Подзадача1", "Описание2", Status.NEW, epic.getId(),
+                    LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(1)));
+            ReplicationSource source = primary.startReplication(0);
+
+            try (ReplicaTaskManager replica = new ReplicaTaskManager(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), source.getPort()))) {
+                replica.start();
+                awaitCaughtUp(replica, source);
+                assertSameBoard(primary, replica);
+
+                Task task = new Task("Задача1", "Описание3", Status.NEW,
+                        LocalDateTime.of(2024, 10, 22, 12, 0), Duration.ofHours(1));
+                primary.addNewTask(task);
+                Subtask done = new Subtask("Подзадача1", "Описание2", Status.DONE, epic.getId(),
+                        LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(1));
+                done.setId(2);
+                primary.updateSubtask(done);
+                primary.addNewSubtask(new Subtask("Подзадача2", "Описание4", Status.NEW, epic.getId()));
+                primary.deleteTask(task.getId());
+                awaitCaughtUp(replica, source);
+
+                assertSameBoard(primary, replica);
+                Assertions.assertEquals(Status.IN_PROGRESS, replica.getEpicById(epic.getId()).getStatus());
+                ReplicaTaskManager.ReplicationStatus status = replica.getStatus();
+                Assertions.assertTrue(status.connected());
+                Assertions.assertEquals(0, status.lagRecords());
+                Assertions.assertEquals(0, status.lagMillis());
+                Assertions.assertEquals(1, source.getReplicaCount());
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectChangesUntilPromoted() throws IOException {
+        try (ReplicaTaskManager replica = new ReplicaTaskManager(unusedAddress())) {
+            replica.start();
+            Task task = new Task("Задача1", "Описание1", Status.NEW);
+
+            Assertions.assertThrows(IllegalStateException.class, () -> replica.addNewTask(task));
+            Assertions.assertFalse(replica.getStatus().connected());
+
+            replica.promote();
+            replica.addNewTask(task);
+
+            Assertions.assertTrue(replica.getStatus().promoted());
+            Assertions.assertEquals(List.of(task), replica.getAllTasks());
+        }
+    }
+
+    @Test
+    void shouldKeepServingReadsAfterPrimaryIsGone() throws IOException {
+        File file = File.createTempFile("primary", ".csv");
+        FileBackedTaskManager primary = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build();
+        primary.addNewTask(new Task("Задача1", "Описание1", Status.NEW));
+        ReplicationSource source = primary.startReplication(0);
+        try (ReplicaTaskManager replica = new ReplicaTaskManager(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), source.getPort()))) {
+            replica.start();
+            awaitCaughtUp(replica, source);
+
+            primary.close();
+            await(() -> !replica.getStatus().connected());
+
+            Assertions.assertEquals(1, replica.getAllTasks().size());
+            replica.promote();
+            replica.addNewTask(new Task("Задача2", "Описание2", Status.NEW));
+            Assertions.assertEquals(2, replica.getTaskById(2).getId());
+        }
+    }
+
+    @Test
+    void shouldHandOutCopiesTheFollowerDoesNotChange() throws IOException {
+        File file = File.createTempFile("primary", ".csv");
+        try (FileBackedTaskManager primary = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.WRITE_AHEAD_LOG).build()) {
+            Epic epic = new Epic("Эпик1", "Описание1", Status.NEW);
+            primary.addNewEpic(epic);
+            ReplicationSource source = primary.startReplication(0);
+
+            try (ReplicaTaskManager replica = new ReplicaTaskManager(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), source.getPort()))) {
+                replica.start();
+                awaitCaughtUp(replica, source);
+                Epic read = replica.getEpicById(epic.getId());
+
+                primary.addNewSubtask(new Subtask("Подзадача1", "Описание2", Status.DONE, epic.getId()));
+                awaitCaughtUp(replica, source);
+
+                Assertions.assertEquals(Status.NEW, read.getStatus());
+                Assertions.assertTrue(read.getSubtasks().isEmpty());
+                Assertions.assertEquals(Status.DONE, replica.getEpicById(epic.getId()).getStatus());
+            }
+        }
+    }
+
+    // Writes to /dev/full fail with "No space left on device", which stands in for a failing disk.
+    @Test
+    void shouldNotReceiveBatchThePrimaryFailedToWrite() throws Exception {
+        File deviceFull = new File("/dev/full");
+        Assumptions.assumeTrue(deviceFull.exists());
+        File file = File.createTempFile("primary", ".csv");
+        Files.createSymbolicLink(new File(file.getPath() + ".log").toPath(), deviceFull.toPath());
+        try (FileBackedTaskManager primary = FileBackedTaskManager.builder(file)
+                .persistenceMode(FileBackedTaskManager.PersistenceMode.ASYNC_LOG).build()) {
+            ReplicationSource source = primary.startReplication(0);
+
+            try (ReplicaTaskManager replica = new ReplicaTaskManager(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), source.getPort()))) {
+                replica.start();
+                awaitCaughtUp(replica, source);
+
+                primary.addNewTask(new Task("Задача1", "Описание1", Status.NEW));
+                Assertions.assertThrows(ExecutionException.class,
+                        () -> primary.whenDurable().get(10, TimeUnit.SECONDS));
+                await(() -> replica.getStatus().primarySequence() == source.getSequence());
+                Assertions.assertTrue(replica.getAllTasks().isEmpty());
+
+                primary.save();
+                primary.addNewTask(new Task("Задача2", "Описание2", Status.NEW));
+                primary.whenDurable().get(10, TimeUnit.SECONDS);
+                awaitCaughtUp(replica, source);
+
+                assertSameBoard(primary, replica);
+            }
+        }
+    }
+
+    // A stand-in primary ships a batch whose second record the replica cannot apply, then serves a new snapshot
+    // to the next connection. Frame types: 1 is a snapshot, 2 a batch of records.
+    @Test
+    void shouldStartOverFromSnapshotWhenBatchCannotBeApplied() throws Exception {
+        String header = "id,type,name,status,description,start_time,duration,epic\n";
+        try (ServerSocket fakePrimary = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<Void> served = CompletableFuture.runAsync(() -> {
+                try (Socket first = fakePrimary.accept()) {
+                    DataOutputStream out = new DataOutputStream(first.getOutputStream());
+                    writeFrame(out, 1, 0, header);
+                    writeFrame(out, 2, 2, logRecord("ADD,1,TASK,Задача1,NEW,Описание1,,,")
+                            + logRecord("DELETE,TASK,99"));
+                    try (Socket second = fakePrimary.accept()) {
+                        out = new DataOutputStream(second.getOutputStream());
+                        writeFrame(out, 1, 2, header + "5,TASK,Задача5,DONE,Описание5,,,\n");
+                        second.getInputStream().read();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            try (ReplicaTaskManager replica = new ReplicaTaskManager(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), fakePrimary.getLocalPort()))) {
+                replica.start();
+                await(() -> replica.getStatus().appliedSequence() == 2);
+
+                Assertions.assertEquals(List.of(5), replica.getAllTasks().stream().map(Task::getId).toList());
+                Assertions.assertTrue(replica.getStatus().connected());
+            }
+            served.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String logRecord(String body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return "%08x,%s\n".formatted(crc.getValue(), body);
+    }
+
+    private static void writeFrame(DataOutputStream out, int type, long sequence, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(type);
+        out.writeLong(sequence);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static void awaitCaughtUp(ReplicaTaskManager replica, ReplicationSource source) {
+        await(() -> replica.getStatus().connected() && replica.getStatus().appliedSequence() == source.getSequence());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "Replica did not get there in time");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void assertSameBoard(TaskManager expected, TaskManager actual) {
+        Comparator<Task> byId = Comparator.comparing(Task::getId);
+        Assertions.assertEquals(expected.getAllTasks().stream().sorted(byId).toList(),
+                actual.getAllTasks().stream().sorted(byId).toList());
+        Assertions.assertEquals(expected.getAllEpics().stream().sorted(byId).toList(),
+                actual.getAllEpics().stream().sorted(byId).toList());
+        Assertions.assertEquals(expected.getAllSubtasks().stream().sorted(byId).toList(),
+                actual.getAllSubtasks().stream().sorted(byId).toList());
+        Assertions.assertEquals(expected.getPrioritizedTasks(), actual.getPrioritizedTasks());
+    }
+
+    private static InetSocketAddress unusedAddress() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+    }
+}
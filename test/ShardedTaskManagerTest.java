@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import project.manager.ShardedTaskManager;
+import project.manager.TaskManager;
+import project.taskStatus.Status;
+import project.taskType.Epic;
+import project.taskType.Subtask;
+import project.taskType.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ShardedTaskManagerTest extends TaskManagerTest<TaskManager> {
+    private File directory;
+
+    @Override
+    protected TaskManager createTaskManager() throws IOException {
+        directory = Files.createTempDirectory("shards").toFile();
+        return new ShardedTaskManager(directory);
+    }
+
+    @Test
+    void shouldRewriteOnlyShardOfChangedEpic() throws IOException {
+        List<Task> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Epic epic = new Epic("Эпик" + i, "Описание" + i, Status.NEW, null, null);
+            epic.setId(i + 1);
+            records.add(epic);
+        }
+        for (int i = 0; i < 300; i++) {
+            records.add(new Subtask("Подзадача" + i, "Сделать" + i, Status.NEW, 1 + i % 3,
+                    LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(2L * i), Duration.ofMinutes(1)));
+        }
+        records.add(new Task("Задача", "Сделать", Status.NEW, null, null));
+        taskManager.bulkLoad(records);
+        Assertions.assertEquals(List.of("epic-1.csv", "epic-2.csv", "epic-3.csv", "manifest.csv", "tasks.csv"),
+                List.of(directory.list()).stream().sorted().toList());
+
+        Object secondShard = fileKey("epic-2.csv");
+        Object tasksShard = fileKey("tasks.csv");
+        Subtask subtask = taskManager.getSubtaskById(4);
+        subtask.setStatus(Status.DONE);
+        taskManager.updateSubtask(subtask);
+        taskManager.deleteEpicById(3);
+
+        Assertions.assertEquals(secondShard, fileKey("epic-2.csv"));
+        Assertions.assertEquals(tasksShard, fileKey("tasks.csv"));
+        Assertions.assertFalse(new File(directory, "epic-3.csv").exists());
+        Assertions.assertEquals(102, Files.readAllLines(new File(directory, "epic-1.csv").toPath()).size());
+
+        Files.writeString(new File(directory, "epic-9.csv").toPath(), "id,type,name,status,description\n");
+        ShardedTaskManager loadedManager = ShardedTaskManager.loadFromDirectory(directory);
+        Assertions.assertEquals(taskManager.getAllSubtasks(), loadedManager.getAllSubtasks());
+        Assertions.assertEquals(taskManager.getAllTasks(), loadedManager.getAllTasks());
+        Assertions.assertEquals(taskManager.getPrioritizedTasks(), loadedManager.getPrioritizedTasks());
+        Assertions.assertEquals(Status.IN_PROGRESS, loadedManager.getEpicById(1).getStatus());
+        Assertions.assertNull(loadedManager.getEpicById(3));
+        Assertions.assertFalse(new File(directory, "epic-9.csv").exists());
+    }
+
+    private Object fileKey(String shard) throws IOException {
+        return Files.readAttributes(new File(directory, shard).toPath(), BasicFileAttributes.class).fileKey();
+    }
+}
@@ -323,6 +323,63 @@ abstract class TaskManagerTest<T extends TaskManager> {
         Assertions.assertEquals(List.of(subtask1, subtask2), taskManager.getPrioritizedTasks());
     }
 
+    @Test
+    void shouldRejectZeroLengthUpdateStartingWithAnotherTask() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 10, 22, 10, 0);
+        Task task = new Task("Задача1", "Описание1", Status.NEW, startTime, Duration.ofHours(1));
+        Task laterTask = new Task("Задача2", "Описание2", Status.NEW, startTime.plusHours(2), Duration.ofHours(1));
+        taskManager.addNewTask(task);
+        taskManager.addNewTask(laterTask);
+
+        Task zeroLengthTask = new Task("Задача2", "Описание2", Status.NEW, startTime, Duration.ZERO);
+        zeroLengthTask.setId(laterTask.getId());
+
+        Assertions.assertThrows(TaskTimeConflictException.class, () -> taskManager.updateTask(zeroLengthTask));
+        Assertions.assertEquals(List.of(task, laterTask), taskManager.getPrioritizedTasks());
+        Assertions.assertEquals(laterTask, taskManager.getTaskById(laterTask.getId()));
+    }
+
+    @Test
+    void shouldKeepFractionalSecondsOfStartTime() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 1, 1, 10, 0, 0, 500_000_000);
+        Task task = new Task("Задача1", "Описание1", Status.NEW, startTime, Duration.ofHours(1));
+        taskManager.addNewTask(task);
+        Epic epic = new Epic("Эпик1", "Сделать1", Status.NEW);
+        taskManager.addNewEpic(epic);
+        Subtask subtask = new Subtask("Подзадача1", "Сделать1", Status.NEW, epic.getId(),
+                startTime.plusHours(1), Duration.ofMillis(1_500));
+        taskManager.addNewSubtask(subtask);
+
+        Assertions.assertEquals(startTime, taskManager.getTaskById(task.getId()).getStartTime());
+        Assertions.assertEquals(startTime.plusHours(1), taskManager.getEpicById(epic.getId()).getStartTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 1, 1, 11, 0, 2),
+                taskManager.getEpicById(epic.getId()).getEndTime());
+
+        Task overlappingTask = new Task("Задача2", "Описание2", Status.NEW,
+                LocalDateTime.of(2024, 1, 1, 9, 0), Duration.ofMinutes(60).plusMillis(501));
+        taskManager.addNewTask(overlappingTask);
+        Task adjacentTask = new Task("Задача3", "Описание3", Status.NEW,
+                LocalDateTime.of(2024, 1, 1, 9, 0), Duration.ofMinutes(60).plusMillis(500));
+        taskManager.addNewTask(adjacentTask);
+
+        Assertions.assertEquals(List.of(adjacentTask, task, subtask), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldSettleBulkLoadConflictsInIdOrder() {
+        Task earlierTask = new Task("Задача1", "Описание1", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 10, 0), Duration.ofHours(2));
+        earlierTask.setId(1);
+        Task overlappingTask = new Task("Задача2", "Описание2", Status.NEW,
+                LocalDateTime.of(2024, 10, 22, 9, 0), Duration.ofHours(2));
+        overlappingTask.setId(2);
+
+        List<Task> conflicts = taskManager.bulkLoad(List.of(overlappingTask, earlierTask));
+
+        Assertions.assertEquals(List.of(overlappingTask), conflicts);
+        Assertions.assertEquals(List.of(earlierTask), taskManager.getPrioritizedTasks());
+    }
+
     @Test
     void shouldConsistencyMapAndSet() {
         Task task1 = new Task("Задача1", "Описание1", Status.NEW,
@@ -353,4 +410,111 @@ abstract class TaskManagerTest<T extends TaskManager> {
                 .filter(task -> task.getStartTime() != null && task.getDuration() != null)
                 .forEach(task -> Assertions.assertTrue(prioritizedTasks.contains(task)));
     }
+
+    @Test
+    void shouldCheckIntersectionsOnlyWithNeighbourTasks() {
+        Task task1 = new Task("Задача1", "Описание1", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 10, 0), Duration.ofHours(1));
+        Task task2 = new Task("Задача2", "Описание2", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 14, 0), Duration.ofHours(1));
+        Task adjacentTask = new Task("Задача3", "Описание3", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 11, 0), Duration.ofHours(3));
+        Task coveringTask = new Task("Задача4", "Описание4", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 9, 0), Duration.ofHours(8));
+
+        taskManager.addNewTask(task1);
+        taskManager.addNewTask(task2);
+        taskManager.addNewTask(adjacentTask);
+        taskManager.addNewTask(coveringTask);
+
+        Assertions.assertEquals(List.of(task1, adjacentTask, task2), taskManager.getPrioritizedTasks());
+
+        Task shiftedTask = new Task("Задача1", "Описание1", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 10, 30), Duration.ofMinutes(30));
+        shiftedTask.setId(task1.getId());
+        taskManager.updateTask(shiftedTask);
+
+        Assertions.assertEquals(List.of(shiftedTask, adjacentTask, task2), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldRemoveEpicSubtasksFromPrioritizedTasks() {
+        Task task1 = new Task("Задача1", "Описание1", Status.NEW,
+                LocalDateTime.of(2024, 10, 21, 10, 0), Duration.ofHours(1));
+        taskManager.addNewTask(task1);
+
+        Epic epic1 = new Epic("Эпик1", "Сделать1", Status.NEW);
+        taskManager.addNewEpic(epic1);
+        Subtask subtask1 = new Subtask("Подзача1", "Сделать1", Status.NEW, epic1.getId(),
+                LocalDateTime.of(2024, 10, 21, 12, 0), Duration.ofHours(2));
+        taskManager.addNewSubtask(subtask1);
+
+        taskManager.deleteEpicById(epic1.getId());
+
+        Assertions.assertEquals(List.of(task1), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldEpicStatusFollowSubtaskStatusChanges() {
+        Epic epic = new Epic("Эпик1", "Сделать1", Status.NEW);
+        taskManager.addNewEpic(epic);
+
+        Subtask subtask1 = new Subtask("Подзадача1", "Сделать1", Status.NEW, epic.getId());
+        taskManager.addNewSubtask(subtask1);
+        Subtask subtask2 = new Subtask("Подзадача2", "Сделать2", Status.DONE, epic.getId());
+        taskManager.addNewSubtask(subtask2);
+        Assertions.assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        subtask1.setStatus(Status.DONE);
+        taskManager.updateSubtask(subtask1);
+        Assertions.assertEquals(Status.DONE, epic.getStatus());
+
+        Subtask updatedSubtask2 = new Subtask("Подзадача2", "Сделать2", Status.NEW, epic.getId());
+        updatedSubtask2.setId(subtask2.getId());
+        taskManager.updateSubtask(updatedSubtask2);
+        Assertions.assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        taskManager.deleteSubtaskById(subtask1.getId());
+        Assertions.assertEquals(Status.NEW, epic.getStatus());
+
+        taskManager.deleteAllSubtasks();
+        Assertions.assertEquals(Status.NEW, epic.getStatus());
+    }
+
+    @Test
+    void shouldEpicTimeFollowSubtaskChanges() {
+        Epic epic = new Epic("Эпик1", "Сделать1", Status.NEW);
+        taskManager.addNewEpic(epic);
+
+        Subtask subtask1 = new Subtask("Подзадача1", "Сделать1", Status.NEW, epic.getId(),
+                LocalDateTime.of(2024, 10, 21, 10, 0), Duration.ofHours(1));
+        taskManager.addNewSubtask(subtask1);
+        Subtask subtask2 = new Subtask("Подзадача2", "Сделать2", Status.NEW, epic.getId(),
+                LocalDateTime.of(2024, 10, 21, 12, 0), Duration.ofHours(2));
+        taskManager.addNewSubtask(subtask2);
+        Subtask subtask3 = new Subtask("Подзадача3", "Сделать3", Status.NEW, epic.getId());
+        taskManager.addNewSubtask(subtask3);
+
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 10, 0), epic.getStartTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 14, 0), epic.getEndTime());
+        Assertions.assertEquals(Duration.ofHours(3), epic.getDuration());
+
+        subtask2.setStartTime(LocalDateTime.of(2024, 10, 21, 8, 0));
+        taskManager.updateSubtask(subtask2);
+
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 8, 0), epic.getStartTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 11, 0), epic.getEndTime());
+
+        taskManager.deleteSubtaskById(subtask1.getId());
+
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 8, 0), epic.getStartTime());
+        Assertions.assertEquals(LocalDateTime.of(2024, 10, 21, 10, 0), epic.getEndTime());
+        Assertions.assertEquals(Duration.ofHours(2), epic.getDuration());
+
+        taskManager.deleteSubtaskById(subtask2.getId());
+
+        Assertions.assertNull(epic.getStartTime());
+        Assertions.assertNull(epic.getEndTime());
+        Assertions.assertEquals(Duration.ZERO, epic.getDuration());
+    }
 }
\ No newline at end of file